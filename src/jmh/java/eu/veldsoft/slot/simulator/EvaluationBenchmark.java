@@ -0,0 +1,221 @@
+package eu.veldsoft.slot.simulator;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the screen evaluation: lines, scatters, wilds expansion and
+ * collapse. The screens are spun in advance and each invocation copies the
+ * next screen in the simulation context, so the copying is part of all
+ * measurements.
+ *
+ * @author Todor Balabanov
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EvaluationBenchmark {
+	/** Number of screens spun in advance. It should be power of two. */
+	private static final int SCREENS = 1024;
+
+	/** Sample game from the workbook or synthetic game. */
+	@Param({ "sample", "synthetic" })
+	String game;
+
+	/** Number of reels in the synthetic game. */
+	@Param({ "5" })
+	int reels;
+
+	/** Number of rows in the synthetic game. */
+	@Param({ "3" })
+	int rows;
+
+	/** Number of symbols in the synthetic game. */
+	@Param({ "10" })
+	int symbols;
+
+	/** Number of lines in the synthetic game. */
+	@Param({ "20" })
+	int lines;
+
+	/** Length of the reels in the synthetic game. */
+	@Param({ "100" })
+	int length;
+
+	/** Simulation context. */
+	Simulation simulation;
+
+	/** Screens spun in advance. */
+	int[][][] views;
+
+	/** Cells took part of the wins for each screen. */
+	boolean[][][] winners;
+
+	/** Reels stops of each screen. */
+	int[][] stops;
+
+	/** Number of scatters on each screen. */
+	int[] scatters;
+
+	/** Buffer for the statistics output. */
+	int[][] statistics;
+
+	/** Buffer for the reels stops changed by the collapse. */
+	int[] collapseStops;
+
+	/** Index of the next screen. */
+	int next = 0;
+
+	/**
+	 * Load the game and spin the screens.
+	 */
+	@Setup(Level.Trial)
+	public void setup() {
+		Games.setup(game, reels, rows, symbols, lines, length);
+
+		simulation = new Simulation();
+		simulation.prng = Prng.XOROSHIRO.streams(1L, 1)[0];
+
+		int[][] view = simulation.view;
+		views = new int[SCREENS][view.length][];
+		winners = new boolean[SCREENS][view.length][];
+		stops = new int[SCREENS][Simulation.baseWrapped.length];
+		scatters = new int[SCREENS];
+		statistics = new int[Math.max(Simulation.LINES.size(),
+				Simulation.scatters.length)][3];
+		collapseStops = new int[Simulation.baseWrapped.length];
+
+		for (int s = 0; s < SCREENS; s++) {
+			simulation.clear();
+			simulation.spin(Simulation.baseWrapped, Simulation.baseScatters,
+					stops[s]);
+			scatters[s] = simulation.scattersOnScreen;
+
+			simulation.linesWin(view, statistics);
+			simulation.scatterWin(view, statistics);
+			for (int i = 0; i < view.length; i++) {
+				views[s][i] = view[i].clone();
+				winners[s][i] = simulation.winners[i].clone();
+			}
+		}
+	}
+
+	/**
+	 * Copy the next screen in the simulation context.
+	 *
+	 * @return Index of the screen.
+	 */
+	private int load() {
+		int s = next;
+		next = (next + 1) & (SCREENS - 1);
+
+		for (int i = 0; i < views[s].length; i++) {
+			System.arraycopy(views[s][i], 0, simulation.view[i], 0,
+					views[s][i].length);
+		}
+		simulation.scattersOnScreen = scatters[s];
+
+		return s;
+	}
+
+	/**
+	 * Lines evaluation.
+	 *
+	 * @return Win from the lines.
+	 */
+	@Benchmark
+	public int linesWin() {
+		load();
+		return simulation.linesWin(simulation.view, statistics);
+	}
+
+	/**
+	 * Scatters evaluation.
+	 *
+	 * @return Win from the scatters.
+	 */
+	@Benchmark
+	public int scatterWin() {
+		load();
+		return simulation.scatterWin(simulation.view, statistics);
+	}
+
+	/**
+	 * Burning Hot style of wilds expansion.
+	 *
+	 * @return True if there was expansion.
+	 */
+	@Benchmark
+	public boolean burningHot() {
+		load();
+		return simulation.burningHotSubstitution(simulation.view);
+	}
+
+	/**
+	 * Lucky &amp; Wild style of wilds expansion.
+	 *
+	 * @return True if there was expansion.
+	 */
+	@Benchmark
+	public boolean luckyAndWild() {
+		load();
+		return simulation.luckyAndWildSubstitution(simulation.view);
+	}
+
+	/**
+	 * 20 Hot Blast style of wilds expansion.
+	 *
+	 * @return True if there was expansion.
+	 */
+	@Benchmark
+	public boolean twentyHotBlast() {
+		load();
+		return simulation.twentyHotBlastSubstitution(simulation.view);
+	}
+
+	/**
+	 * Extra Stars style of wilds expansion.
+	 *
+	 * @return True if there was expansion.
+	 */
+	@Benchmark
+	public boolean extraStars() {
+		load();
+		return Simulation.extraStarsSubstitution(simulation.view);
+	}
+
+	/**
+	 * Collapse of the cells which took part of the wins.
+	 *
+	 * @return Screen after the collapse.
+	 */
+	@Benchmark
+	public int[][] collapse() {
+		int s = load();
+
+		for (int i = 0; i < winners[s].length; i++) {
+			System.arraycopy(winners[s][i], 0, simulation.winners[i], 0,
+					winners[s][i].length);
+		}
+		System.arraycopy(stops[s], 0, collapseStops, 0, collapseStops.length);
+
+		simulation.collapse(simulation.view, Simulation.baseCodes,
+				collapseStops);
+		return simulation.view;
+	}
+}
@@ -0,0 +1,123 @@
+package eu.veldsoft.slot.simulator;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of whole games, single base game and round of free spins, in
+ * each style of wilds expansion.
+ *
+ * @author Todor Balabanov
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GameBenchmark {
+	/** Number of free spins in a single round. */
+	private static final int FREE_GAMES = 10;
+
+	/** Sample game from the workbook or synthetic game. */
+	@Param({ "sample", "synthetic" })
+	String game;
+
+	/** Style of wilds expansion. */
+	@Param({ "none", "burninghot", "luckywild", "twentyhotblast",
+			"extrastars" })
+	String expansion;
+
+	/** Number of reels in the synthetic game. */
+	@Param({ "5" })
+	int reels;
+
+	/** Number of rows in the synthetic game. */
+	@Param({ "3" })
+	int rows;
+
+	/** Number of symbols in the synthetic game. */
+	@Param({ "10" })
+	int symbols;
+
+	/** Number of lines in the synthetic game. */
+	@Param({ "20" })
+	int lines;
+
+	/** Length of the reels in the synthetic game. */
+	@Param({ "100" })
+	int length;
+
+	/** Simulation context. */
+	Simulation simulation;
+
+	/**
+	 * Load the game and create the simulation context.
+	 */
+	@Setup(Level.Trial)
+	public void setup() {
+		Games.setup(game, reels, rows, symbols, lines, length);
+
+		if ("burninghot".equals(expansion) == true) {
+			Simulation.burningHotWilds = true;
+		} else if ("luckywild".equals(expansion) == true) {
+			Simulation.luckyAndWildWilds = true;
+		} else if ("twentyhotblast".equals(expansion) == true) {
+			Simulation.twentyHotBlast = true;
+		} else if ("extrastars".equals(expansion) == true) {
+			Simulation.extraStars = true;
+		}
+
+		simulation = new Simulation();
+		simulation.prng = Prng.XOROSHIRO.streams(1L, 1)[0];
+	}
+
+	/**
+	 * The balance grows with every base game, so it is cleared between the
+	 * iterations.
+	 */
+	@Setup(Level.Iteration)
+	public void clearBalance() {
+		simulation.balance.clear();
+	}
+
+	/**
+	 * Single base game with the free spins triggered by it.
+	 *
+	 * @return Total win of the game.
+	 */
+	@Benchmark
+	public int singleBaseGame() {
+		simulation.singleBaseGame();
+		return simulation.totalWin;
+	}
+
+	/**
+	 * Round of free spins.
+	 *
+	 * @return Total win of the round.
+	 */
+	@Benchmark
+	public int freeGames() {
+		simulation.totalWin = 0;
+		simulation.freeGamesNumber = FREE_GAMES;
+		while (simulation.freeGamesNumber > 0) {
+			simulation.singleFreeGame();
+			simulation.freeGamesNumber--;
+		}
+
+		return simulation.totalWin;
+	}
+}
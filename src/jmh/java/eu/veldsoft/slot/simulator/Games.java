@@ -0,0 +1,165 @@
+package eu.veldsoft.slot.simulator;
+
+import java.util.Random;
+
+/**
+ * Games used in the benchmarks. The sample game is loaded from the workbook in
+ * the documentation folder and the synthetic games are generated with given
+ * size.
+ *
+ * @author Todor Balabanov
+ */
+final class Games {
+	/** Workbook with the sample game. */
+	static final String SAMPLE_FILE = "doc/Game_Sample_001.xlsx";
+
+	/** Sheet with the base game reels of the sample game. */
+	static final String SAMPLE_BASE_REELS = "Base Reels 95.5 RTP";
+
+	/** Sheet with the free spins reels of the sample game. */
+	static final String SAMPLE_FREE_REELS = "Free Reels 95.5 RTP";
+
+	/** Seed used for the generation of the synthetic games. */
+	private static final long SEED = 7L;
+
+	/**
+	 * Setup the game configuration and initialize the simulation.
+	 *
+	 * @param game
+	 *            Name of the game, sample or synthetic.
+	 * @param reels
+	 *            Number of reels in a synthetic game.
+	 * @param rows
+	 *            Number of rows in a synthetic game.
+	 * @param symbols
+	 *            Number of symbols in a synthetic game (wild and scatter
+	 *            included).
+	 * @param lines
+	 *            Number of lines in a synthetic game.
+	 * @param length
+	 *            Length of the reels in a synthetic game.
+	 */
+	static void setup(String game, int reels, int rows, int symbols,
+			int lines, int length) {
+		if ("sample".equals(game) == true) {
+			Main.loadGameStructure(SAMPLE_FILE, SAMPLE_BASE_REELS,
+					SAMPLE_FREE_REELS);
+		} else if ("synthetic".equals(game) == true) {
+			synthetic(reels, rows, symbols, lines, length);
+		} else {
+			throw new IllegalArgumentException("Unknown game " + game + "!");
+		}
+
+		/* Free spins are played on the base reels if there are no others. */
+		for (String[] strip : Simulation.freeStrips) {
+			if (strip.length == 0) {
+				Simulation.freeStrips = Simulation.baseStrips;
+				break;
+			}
+		}
+
+		Simulation.verboseOutput = false;
+		Simulation.freeOff = false;
+		Simulation.wildsOff = false;
+		Simulation.burningHotWilds = false;
+		Simulation.luckyAndWildWilds = false;
+		Simulation.luckyLadysCharm = false;
+		Simulation.ageOfTroy = false;
+		Simulation.twentyHotBlast = false;
+		Simulation.extraStars = false;
+		Simulation.bruteForce = false;
+
+		Simulation.initialize();
+	}
+
+	/**
+	 * Generate synthetic game. The last two symbols are wild and scatter, all
+	 * others are regular symbols paying for three or more in a line.
+	 *
+	 * @param reels
+	 *            Number of reels.
+	 * @param rows
+	 *            Number of rows.
+	 * @param symbols
+	 *            Number of symbols.
+	 * @param lines
+	 *            Number of lines.
+	 * @param length
+	 *            Length of the reels.
+	 */
+	private static void synthetic(int reels, int rows, int symbols, int lines,
+			int length) {
+		if (reels < 3 || rows < 1 || symbols < 3 || lines < 1 || length < rows) {
+			throw new IllegalArgumentException("Invalid synthetic game size!");
+		}
+
+		Random random = new Random(SEED);
+
+		Simulation.SYMBOLS.clear();
+		Simulation.PAYTABLE.clear();
+		Simulation.LINES.clear();
+		Simulation.coins.clear();
+		Simulation.WILDS.clear();
+		Simulation.EXTENDS.clear();
+		Simulation.SCATTERS.clear();
+		Simulation.FREES.clear();
+		Simulation.BONUSES.clear();
+
+		Simulation.numberOfReels = reels;
+		Simulation.numberOfRows = rows;
+		Simulation.scatterMultiplier = 1;
+		Simulation.wildInLineMultiplier = 2;
+		Simulation.freeGamesMultiplier = 3;
+
+		/* Symbols and pay table. */
+		for (int s = 0; s < symbols; s++) {
+			Symbol symbol = new Symbol();
+			symbol.index = s;
+			symbol.name = "S" + s;
+			symbol.type = Symbol.Type.REGULAR;
+			symbol.pays = new int[reels + 1];
+
+			if (s == symbols - 2) {
+				symbol.type = Symbol.Type.WILD;
+				Simulation.WILDS.add(symbol);
+			} else if (s == symbols - 1) {
+				symbol.type = Symbol.Type.SCATTER;
+				Simulation.SCATTERS.add(symbol);
+				for (int c = 3; c <= reels; c++) {
+					symbol.pays[c] = c - 2;
+				}
+			} else {
+				for (int c = 3; c <= reels; c++) {
+					symbol.pays[c] = (s + 1) * (c - 2) * (c - 2);
+				}
+			}
+
+			Simulation.SYMBOLS.add(symbol);
+			Simulation.PAYTABLE.add(symbol);
+		}
+
+		/* The first lines are horizontal and the others are random. */
+		for (int l = 0; l < lines; l++) {
+			Line line = new Line();
+			line.positions = new int[reels];
+			line.pattern = new boolean[reels][rows];
+
+			for (int i = 0; i < reels; i++) {
+				line.positions[i] = l < rows ? l : random.nextInt(rows);
+				line.pattern[i][line.positions[i]] = true;
+			}
+
+			Simulation.LINES.add(line);
+		}
+
+		/* Reels with uniformly distributed symbols. */
+		Simulation.baseStrips = new String[reels][length];
+		Simulation.freeStrips = new String[reels][length];
+		for (int i = 0; i < reels; i++) {
+			for (int j = 0; j < length; j++) {
+				Simulation.baseStrips[i][j] = "S" + random.nextInt(symbols);
+				Simulation.freeStrips[i][j] = "S" + random.nextInt(symbols);
+			}
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package eu.veldsoft.slot.simulator;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the game loading from the workbook or from the compiled game
+ * cache and its initialization.
+ *
+ * @author Todor Balabanov
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class LoadingBenchmark {
+	/** Use of the compiled game cache. */
+	@Param({ "true", "false" })
+	boolean cache;
+
+	/**
+	 * Switch the cache on or off.
+	 */
+	@Setup(Level.Trial)
+	public void setup() {
+		GameCache.enabled = cache;
+	}
+
+	/**
+	 * Load and initialize the sample game.
+	 *
+	 * @return Total bet of the loaded game.
+	 */
+	@Benchmark
+	public int loadGameStructure() {
+		Main.loadGameStructure(Games.SAMPLE_FILE, Games.SAMPLE_BASE_REELS,
+				Games.SAMPLE_FREE_REELS);
+		Simulation.initialize();
+
+		return Simulation.totalBet;
+	}
+}
@@ -0,0 +1,261 @@
+package eu.veldsoft.slot.simulator;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Credit balance of a player session in fixed memory. The balance is kept as
+ * a fixed number of buckets with the min, max and last credit of equal number
+ * of consecutive games. When all buckets are full the neighbor buckets are
+ * merged and the games in a bucket are doubled. Optionally all values can be
+ * spilled in a memory-mapped file of 32-bit big-endian integers.
+ *
+ * @author Todor Balabanov
+ */
+final class Balance {
+	/** Default number of buckets. */
+	static final int BUCKETS = 1024;
+
+	/** Number of values in a single mapped region of the spill file. */
+	private static final int REGION = 1 << 24;
+
+	/** Min value in each bucket. */
+	private final int min[];
+
+	/** Max value in each bucket. */
+	private final int max[];
+
+	/** Last value in each bucket. */
+	private final int last[];
+
+	/** Number of values in each bucket. */
+	private long width = 1L;
+
+	/** Number of recorded values. */
+	private long size = 0L;
+
+	/** Spill file or null if the values are not spilled. */
+	private RandomAccessFile file = null;
+
+	/** Mapped regions of the spill file. */
+	private final List<MappedByteBuffer> regions = new ArrayList<MappedByteBuffer>();
+
+	/**
+	 * Constructor with default number of buckets.
+	 */
+	Balance() {
+		this(BUCKETS);
+	}
+
+	/**
+	 * Constructor with given number of buckets.
+	 *
+	 * @param buckets
+	 *            Number of buckets, which should be even.
+	 */
+	Balance(int buckets) {
+		min = new int[buckets];
+		max = new int[buckets];
+		last = new int[buckets];
+	}
+
+	/**
+	 * Record single value.
+	 *
+	 * @param value
+	 *            Credit value.
+	 */
+	void add(int value) {
+		/* Neighbor buckets are merged when there is no space. */
+		if (size == width * last.length) {
+			for (int b = 0; b < last.length / 2; b++) {
+				min[b] = Math.min(min[2 * b], min[2 * b + 1]);
+				max[b] = Math.max(max[2 * b], max[2 * b + 1]);
+				last[b] = last[2 * b + 1];
+			}
+			width *= 2;
+		}
+
+		int b = (int) (size / width);
+		if (size % width == 0) {
+			min[b] = value;
+			max[b] = value;
+		} else {
+			min[b] = Math.min(min[b], value);
+			max[b] = Math.max(max[b], value);
+		}
+		last[b] = value;
+
+		if (file != null) {
+			region(size).putInt((int) (size % REGION) * Integer.BYTES, value);
+		}
+
+		size++;
+	}
+
+	/**
+	 * Remove all values. The spill file is overwritten from its beginning.
+	 */
+	void clear() {
+		width = 1L;
+		size = 0L;
+	}
+
+	/**
+	 * Number of recorded values.
+	 *
+	 * @return Number of values.
+	 */
+	long size() {
+		return size;
+	}
+
+	/**
+	 * Number of used buckets.
+	 *
+	 * @return Number of buckets.
+	 */
+	int buckets() {
+		return (int) ((size + width - 1) / width);
+	}
+
+	/**
+	 * Index of the first value in a bucket.
+	 *
+	 * @param bucket
+	 *            Bucket index.
+	 *
+	 * @return Value index.
+	 */
+	long first(int bucket) {
+		return bucket * width;
+	}
+
+	/**
+	 * Min value in a bucket.
+	 *
+	 * @param bucket
+	 *            Bucket index.
+	 *
+	 * @return Min value.
+	 */
+	int min(int bucket) {
+		return min[bucket];
+	}
+
+	/**
+	 * Max value in a bucket.
+	 *
+	 * @param bucket
+	 *            Bucket index.
+	 *
+	 * @return Max value.
+	 */
+	int max(int bucket) {
+		return max[bucket];
+	}
+
+	/**
+	 * Last value in a bucket.
+	 *
+	 * @param bucket
+	 *            Bucket index.
+	 *
+	 * @return Last value.
+	 */
+	int last(int bucket) {
+		return last[bucket];
+	}
+
+	/**
+	 * Spill all next values in a file.
+	 *
+	 * @param name
+	 *            File name.
+	 *
+	 * @throws IOException
+	 *             If the file can not be created.
+	 */
+	void spill(String name) throws IOException {
+		close();
+		file = new RandomAccessFile(name, "rw");
+		file.setLength(0L);
+	}
+
+	/**
+	 * Check for spill file.
+	 *
+	 * @return True if the values are spilled in a file.
+	 */
+	boolean spilled() {
+		return file != null;
+	}
+
+	/**
+	 * Spilled value.
+	 *
+	 * @param index
+	 *            Value index.
+	 *
+	 * @return Value.
+	 *
+	 * @throws IOException
+	 *             If the values are not spilled.
+	 */
+	int get(long index) throws IOException {
+		if (file == null) {
+			throw new IOException("Balance values are not spilled.");
+		}
+
+		return region(index).getInt((int) (index % REGION) * Integer.BYTES);
+	}
+
+	/**
+	 * Mapped region of the spill file with given value. The file is extended
+	 * when it is needed.
+	 *
+	 * @param index
+	 *            Value index.
+	 *
+	 * @return Region.
+	 */
+	private MappedByteBuffer region(long index) {
+		int r = (int) (index / REGION);
+
+		try {
+			while (regions.size() <= r) {
+				regions.add(file.getChannel().map(
+						FileChannel.MapMode.READ_WRITE,
+						(long) regions.size() * REGION * Integer.BYTES,
+						(long) REGION * Integer.BYTES));
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+
+		return regions.get(r);
+	}
+
+	/**
+	 * Close the spill file. The file is cut to the recorded values. The
+	 * buckets are still available after that.
+	 */
+	void close() {
+		if (file == null) {
+			return;
+		}
+
+		regions.clear();
+		try {
+			file.setLength(size * Integer.BYTES);
+			file.close();
+		} catch (IOException e) {
+			System.err.println(e);
+		}
+		file = null;
+	}
+}
@@ -0,0 +1,187 @@
+package eu.veldsoft.slot.simulator;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * State of an interrupted simulation. It holds the accumulated statistics and
+ * the random streams of all workers, so the simulation can continue exactly
+ * from the place where it was stopped.
+ *
+ * @author Todor Balabanov
+ */
+final class Checkpoint {
+	/** File signature. */
+	private static final int MAGIC = 0x534C4F54;
+
+	/** Version of the file format. */
+	private static final int VERSION = 2;
+
+	/** File used when checkpoint is requested without given file. */
+	static final String DEFAULT_FILE = "simulation.checkpoint";
+
+	/** Type of the pseudo-random number generators. */
+	Prng prngType = Prng.XOROSHIRO;
+
+	/** Seed of the pseudo-random number generators. */
+	long seed = 0L;
+
+	/** Total number of games to be played. */
+	long numberOfSimulations = 0L;
+
+	/** Number of games already played. */
+	long games = 0L;
+
+	/** Number of games played between two checkpoints. */
+	long round = 0L;
+
+	/** Working simulation contexts. */
+	Simulation workers[] = {};
+
+	/**
+	 * Hash of the game structure and the game mode. It is used to check that
+	 * the checkpoint belongs to the game which is simulated.
+	 *
+	 * @return Hash code.
+	 */
+	private static int fingerprint() {
+		int result = Arrays.deepHashCode(Simulation.baseCodes);
+		result = 31 * result + Arrays.deepHashCode(Simulation.freeCodes);
+		result = 31 * result + Arrays.hashCode(Simulation.pays);
+		result = 31 * result + Arrays.hashCode(Simulation.traits);
+		result = 31 * result + Simulation.numberOfRows;
+		result = 31 * result + Simulation.LINES.size();
+		result = 31 * result + Simulation.totalBet;
+
+		boolean modes[] = { Simulation.freeOff, Simulation.wildsOff,
+				Simulation.burningHotWilds, Simulation.luckyAndWildWilds,
+				Simulation.luckyLadysCharm, Simulation.ageOfTroy,
+				Simulation.twentyHotBlast, Simulation.extraStars,
+				Simulation.arabianNights };
+		result = 31 * result + Arrays.hashCode(modes);
+
+		return result;
+	}
+
+	/**
+	 * Serialize the simulation state. It is called between the rounds, when
+	 * the workers are not playing.
+	 *
+	 * @param numberOfSimulations
+	 *            Total number of games to be played.
+	 * @param games
+	 *            Number of games already played.
+	 * @param round
+	 *            Number of games played between two checkpoints.
+	 * @param workers
+	 *            Working simulation contexts.
+	 *
+	 * @return Checkpoint content.
+	 *
+	 * @throws IOException
+	 *             If the serialization fails.
+	 */
+	static byte[] encode(long numberOfSimulations, long games, long round,
+			Simulation workers[]) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(fingerprint());
+			out.writeUTF(Util.prngType.name());
+			out.writeLong(Util.seed);
+			out.writeLong(numberOfSimulations);
+			out.writeLong(games);
+			out.writeLong(round);
+
+			out.writeInt(workers.length);
+			for (Simulation worker : workers) {
+				worker.write(out);
+			}
+		}
+
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Store checkpoint content in a file. The content is written in a
+	 * temporary file first and after that it replaces the old checkpoint, so
+	 * the file is always complete even if the process is killed.
+	 *
+	 * @param file
+	 *            Checkpoint file name.
+	 * @param data
+	 *            Checkpoint content.
+	 */
+	static void store(String file, byte[] data) {
+		Path target = Paths.get(file);
+		Path temporary = Paths.get(file + ".tmp");
+
+		try {
+			try (OutputStream out = Files.newOutputStream(temporary)) {
+				out.write(data);
+			}
+
+			Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			System.err.println(e);
+		}
+	}
+
+	/**
+	 * Load checkpoint from a file. The game structure should be loaded and
+	 * initialized before the call.
+	 *
+	 * @param file
+	 *            Checkpoint file name.
+	 *
+	 * @return Simulation state stored in the file.
+	 *
+	 * @throws IOException
+	 *             If the file is not readable or it does not belong to the
+	 *             simulated game.
+	 */
+	static Checkpoint load(String file) throws IOException {
+		Checkpoint result = new Checkpoint();
+
+		try (InputStream stream = new BufferedInputStream(
+				Files.newInputStream(Paths.get(file)));
+				ObjectInputStream in = new ObjectInputStream(stream)) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new IOException(file + " is not a checkpoint file!");
+			}
+			if (in.readInt() != fingerprint()) {
+				throw new IOException(
+						file + " is a checkpoint of different game!");
+			}
+
+			result.prngType = Prng.valueOf(in.readUTF());
+			result.seed = in.readLong();
+			result.numberOfSimulations = in.readLong();
+			result.games = in.readLong();
+			result.round = in.readLong();
+
+			result.workers = new Simulation[in.readInt()];
+			for (int w = 0; w < result.workers.length; w++) {
+				result.workers[w] = new Simulation();
+				result.workers[w].read(in);
+			}
+		} catch (ClassNotFoundException | IllegalArgumentException e) {
+			throw new IOException(file + " is damaged!", e);
+		}
+
+		return result;
+	}
+}
@@ -0,0 +1,479 @@
+package eu.veldsoft.slot.simulator;
+
+import java.util.Arrays;
+
+/**
+ * Exact calculation of the base game statistics without enumeration of all
+ * reels stops combinations. Each reel gives the same symbols distribution to
+ * every row, so all lines have the same distribution of symbols combinations
+ * and the line wins are calculated once over the symbols combinations
+ * weighted by the symbols counts on the reels. Scatter wins are calculated
+ * from the distribution of the scatters in the visible part of the reels.
+ *
+ * Hit frequency of the whole game is not a sum over the lines. It is
+ * calculated by enumeration of the stops of the first few reels, which are
+ * enough to decide whether a line wins or not.
+ *
+ * @author Todor Balabanov
+ */
+final class ExactCalculator {
+	/** Maximum number of symbols combinations in a single line. */
+	private static final long MAX_LINE_COMBINATIONS = 1L << 27;
+
+	/** Maximum number of checks in the hit frequency enumeration. */
+	private static final long MAX_HIT_CHECKS = 1L << 34;
+
+	/** Maximum number of different scatters vectors. */
+	private static final long MAX_SCATTERS_VECTORS = 1L << 20;
+
+	/** Outcome of a line combination without win. */
+	private static final byte LOSS = 1;
+
+	/** Outcome of a line combination with win. */
+	private static final byte WIN = 2;
+
+	/**
+	 * Calculate and print the base game statistics. The counters are filled
+	 * as brute force would fill them over all reels stops combinations.
+	 *
+	 * @return Simulation context with the calculated statistics or null if the
+	 *         game can not be calculated exactly and it should be simulated.
+	 */
+	static Simulation calculate() {
+		Simulation result = null;
+		try {
+			result = calculate(Simulation.baseCodes, true);
+		} catch (IllegalArgumentException e) {
+			System.out.println(
+					e.getMessage() + " Simulation is used instead.");
+			return null;
+		}
+
+		System.out.println(
+				"********************************************************************************");
+		result.printMoneyStatistics();
+		result.printSymbolsStatistics();
+		System.out.println(
+				"********************************************************************************");
+
+		return result;
+	}
+
+	/**
+	 * Calculate the base game statistics of given reels without printing.
+	 *
+	 * @param reels
+	 *            Base game reels as symbols codes.
+	 * @param frequency
+	 *            Calculate the hit frequency too. It is the slowest part of
+	 *            the calculation and without it the hit rate stays zero.
+	 *
+	 * @return Simulation context with the calculated statistics.
+	 *
+	 * @throws IllegalArgumentException
+	 *             If the game can not be calculated exactly.
+	 */
+	static Simulation calculate(int[][] reels, boolean frequency) {
+		if (Simulation.burningHotWilds == true
+				|| Simulation.luckyAndWildWilds == true
+				|| Simulation.twentyHotBlast == true
+				|| Simulation.extraStars == true) {
+			throw new IllegalArgumentException(
+					"Wilds expansion can not be calculated exactly.");
+		}
+
+		int codes = Simulation.empty + 1;
+
+		/* Symbols combinations in single line. */
+		long size = 1L;
+		for (int i = 0; i < reels.length; i++) {
+			size *= codes;
+			if (size > MAX_LINE_COMBINATIONS) {
+				throw new IllegalArgumentException(
+						"Too many symbols combinations in a line.");
+			}
+		}
+
+		/* Scatters vectors are numbers with digit for each scatter symbol. */
+		int base = reels.length * Simulation.numberOfRows + 1;
+		long vectors = 1L;
+		for (int k = 0; k < Simulation.scatters.length; k++) {
+			vectors *= base;
+			if (vectors > MAX_SCATTERS_VECTORS) {
+				throw new IllegalArgumentException(
+						"Too many scatter symbols.");
+			}
+		}
+
+		Simulation result = new Simulation();
+		result.totalNumberOfGames = 1L;
+		for (int i = 0; i < reels.length; i++) {
+			result.totalNumberOfGames *= reels[i].length;
+		}
+		result.lostMoney = result.totalNumberOfGames * Simulation.totalBet;
+
+		/* Symbols counts on each reel. */
+		long[][] counts = new long[reels.length][codes];
+		for (int i = 0; i < reels.length; i++) {
+			for (int code : reels[i]) {
+				counts[i][code]++;
+			}
+		}
+
+		byte[] outcomes = new byte[(int) size];
+		lines(result, counts, outcomes);
+
+		/* Scatters vectors of the visible part of each reel and each stop. */
+		int[][] vector = new int[reels.length][];
+		for (int i = 0; i < reels.length; i++) {
+			vector[i] = new int[reels[i].length];
+			for (int s = 0; s < reels[i].length; s++) {
+				for (int j = 0; j < Simulation.numberOfRows; j++) {
+					int code = reels[i][(s + j) % reels[i].length];
+					for (int k = 0, d = 1; k < Simulation.scatters.length; k++) {
+						if (code == Simulation.scatters[k]) {
+							vector[i][s] += d;
+						}
+						d *= base;
+					}
+				}
+			}
+		}
+
+		scatters(result, distribution(vector, 0, reels.length, (int) vectors),
+				base);
+
+		if (frequency == false) {
+			return result;
+		}
+
+		/* Number of leading reels which decide whether a line wins. */
+		int prefix = prefix(outcomes, codes, reels.length);
+		long checks = Simulation.LINES.size() * prefix;
+		int leading = 1;
+		for (int i = 0; i < prefix; i++) {
+			checks *= reels[i].length;
+			leading *= codes;
+		}
+		if (checks > MAX_HIT_CHECKS) {
+			throw new IllegalArgumentException(
+					"Hit frequency can not be calculated exactly.");
+		}
+
+		/* Leading symbols of the lines with win. */
+		boolean[] hits = new boolean[leading];
+		for (int c = 0; c < outcomes.length; c++) {
+			if (outcomes[c] == WIN) {
+				hits[c % leading] = true;
+			}
+		}
+
+		result.baseGameHitRate = result.totalNumberOfGames - misses(reels,
+				prefix, hits, vector, distribution(vector, prefix,
+						reels.length, (int) vectors),
+				base);
+
+		return result;
+	}
+
+	/**
+	 * Calculate line wins over all symbols combinations of a single line.
+	 *
+	 * @param result
+	 *            Simulation context to collect the statistics.
+	 * @param counts
+	 *            Symbols counts on each reel.
+	 * @param outcomes
+	 *            Output outcomes of the combinations (zero for the impossible
+	 *            combinations).
+	 */
+	private static void lines(Simulation result, long[][] counts,
+			byte[] outcomes) {
+		int codes = counts[0].length;
+		int[] combination = new int[counts.length];
+		int[] line = new int[counts.length];
+		int[][] statistics = new int[1][3];
+
+		for (int c = 0; c < outcomes.length; c++) {
+			/* Combination code has a digit for each reel. */
+			long weight = 1L;
+			for (int i = 0, rest = c; i < combination.length; i++) {
+				combination[i] = rest % codes;
+				rest /= codes;
+				weight *= counts[i][combination[i]];
+			}
+
+			/* The combination is not possible. */
+			if (weight == 0) {
+				continue;
+			}
+
+			System.arraycopy(combination, 0, line, 0, line.length);
+			int win = result.lineWin(line, statistics, 0);
+			if (win <= 0) {
+				outcomes[c] = LOSS;
+				continue;
+			}
+			outcomes[c] = WIN;
+
+			/* All lines have the same distribution of combinations. */
+			weight *= Simulation.LINES.size();
+
+			result.baseMoney += weight * win;
+			result.wonMoney += weight * win;
+			result.baseSymbolMoney[statistics[0][0]][statistics[0][1]] += weight
+					* win;
+			result.baseGameSymbolsHitRate[statistics[0][0]][statistics[0][1]] += weight;
+		}
+	}
+
+	/**
+	 * Distribution of the scatters vectors in the visible part of a range of
+	 * reels.
+	 *
+	 * @param vector
+	 *            Scatters vectors of each reel and each stop.
+	 * @param from
+	 *            First reel in the range.
+	 * @param to
+	 *            Reel after the last one in the range.
+	 * @param vectors
+	 *            Number of different scatters vectors.
+	 *
+	 * @return Number of stops combinations for each scatters vector.
+	 */
+	private static long[] distribution(int[][] vector, int from, int to,
+			int vectors) {
+		long[] result = new long[vectors];
+		result[0] = 1L;
+
+		/* Digits do not overflow, so vectors are summed as numbers. */
+		for (int i = from; i < to; i++) {
+			long[] next = new long[vectors];
+			for (int v = 0; v < vectors; v++) {
+				if (result[v] == 0) {
+					continue;
+				}
+
+				for (int s = 0; s < vector[i].length; s++) {
+					next[v + vector[i][s]] += result[v];
+				}
+			}
+			result = next;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Win of the scatters with particular count on the screen.
+	 *
+	 * @param scatter
+	 *            Scatter symbol code.
+	 * @param number
+	 *            Number of scatters on the screen.
+	 *
+	 * @return Calculated win.
+	 */
+	private static int scatterWin(int scatter, int number) {
+		if (Simulation.luckyLadysCharm == true) {
+			return Simulation.pays[scatter * Simulation.stride + number]
+					* Simulation.scatterMultiplier;
+		}
+
+		return Simulation.pays[scatter * Simulation.stride + number]
+				* Simulation.totalBet * Simulation.scatterMultiplier;
+	}
+
+	/**
+	 * Calculate scatter wins and free spins triggering.
+	 *
+	 * @param result
+	 *            Simulation context to collect the statistics.
+	 * @param distribution
+	 *            Number of stops combinations for each scatters vector.
+	 * @param base
+	 *            Base of the digits in the scatters vectors.
+	 */
+	private static void scatters(Simulation result, long[] distribution,
+			int base) {
+		for (int v = 0; v < distribution.length; v++) {
+			if (distribution[v] == 0) {
+				continue;
+			}
+
+			int total = 0;
+			for (int k = 0, rest = v; k < Simulation.scatters.length; k++, rest /= base) {
+				int number = Math.min(rest % base, Simulation.numberOfReels);
+				int value = scatterWin(Simulation.scatters[k], number);
+				total += rest % base;
+
+				if (value <= 0) {
+					continue;
+				}
+
+				result.baseMoney += distribution[v] * value;
+				result.wonMoney += distribution[v] * value;
+				result.baseSymbolMoney[number][Simulation.scatters[k]] += distribution[v]
+						* value;
+				result.baseGameSymbolsHitRate[number][Simulation.scatters[k]] += distribution[v];
+			}
+
+			if (Simulation.freeOff == true) {
+				continue;
+			}
+
+			/* Free spins are triggered by all scatters on the screen. */
+			if (Simulation.luckyLadysCharm == true && total >= 3) {
+				result.totalNumberOfFreeGameStarts += distribution[v];
+			}
+			if (Simulation.ageOfTroy == true && total == 3) {
+				result.totalNumberOfFreeGameStarts += distribution[v];
+			}
+		}
+	}
+
+	/**
+	 * Find the number of leading reels which decide whether a line wins. All
+	 * possible combinations with the same leading symbols should win or all of
+	 * them should not win.
+	 *
+	 * @param outcomes
+	 *            Outcomes of the line combinations.
+	 * @param codes
+	 *            Number of symbols codes.
+	 * @param reels
+	 *            Number of reels.
+	 *
+	 * @return Number of leading reels.
+	 */
+	private static int prefix(byte[] outcomes, int codes, int reels) {
+		int length = 1;
+		for (int size = codes; length < reels; length++, size *= codes) {
+			/* Outcomes of the combinations with the same leading symbols. */
+			byte[] state = new byte[size];
+			boolean decided = true;
+
+			for (int c = 0; c < outcomes.length && decided == true; c++) {
+				state[c % size] |= outcomes[c];
+				decided = state[c % size] != (LOSS | WIN);
+			}
+
+			if (decided == true) {
+				break;
+			}
+		}
+
+		return length;
+	}
+
+	/**
+	 * Count reels stops combinations without any win. Stops of the leading
+	 * reels are enumerated. If no line wins, the scatters on the rest of the
+	 * reels are taken from their distribution.
+	 *
+	 * @param reels
+	 *            Base game reels as symbols codes.
+	 * @param prefix
+	 *            Number of leading reels which decide whether a line wins.
+	 * @param hits
+	 *            Flags for the leading symbols of the lines with win.
+	 * @param vector
+	 *            Scatters vectors of each reel and each stop.
+	 * @param rest
+	 *            Distribution of the scatters vectors after the leading reels.
+	 * @param base
+	 *            Base of the digits in the scatters vectors.
+	 *
+	 * @return Number of combinations without win.
+	 */
+	private static long misses(int[][] reels, int prefix, boolean[] hits,
+			int[][] vector, long[] rest, int base) {
+		int codes = Simulation.empty + 1;
+
+		/* Combinations without scatter win for each leading scatters vector. */
+		long[] misses = new long[rest.length];
+		Arrays.fill(misses, -1L);
+
+		long result = 0L;
+		int[] stops = new int[prefix];
+		do {
+			boolean hit = false;
+			for (int l = 0; l < Simulation.LINES.size() && hit == false; l++) {
+				int[] positions = Simulation.LINES.get(l).positions;
+
+				int code = 0;
+				for (int i = prefix - 1; i >= 0; i--) {
+					code = code * codes + reels[i][(stops[i] + positions[i])
+							% reels[i].length];
+				}
+
+				hit = hits[code];
+			}
+			if (hit == true) {
+				continue;
+			}
+
+			int v = 0;
+			for (int i = 0; i < prefix; i++) {
+				v += vector[i][stops[i]];
+			}
+
+			if (misses[v] == -1L) {
+				misses[v] = 0L;
+				for (int r = 0; v + r < rest.length; r++) {
+					if (rest[r] != 0 && scatterHit(v + r, base) == false) {
+						misses[v] += rest[r];
+					}
+				}
+			}
+
+			result += misses[v];
+		} while (next(stops, reels) == true);
+
+		return result;
+	}
+
+	/**
+	 * Check for scatter win.
+	 *
+	 * @param vector
+	 *            Scatters vector of the screen.
+	 * @param base
+	 *            Base of the digits in the scatters vector.
+	 *
+	 * @return True if there is scatter win, false otherwise.
+	 */
+	private static boolean scatterHit(int vector, int base) {
+		for (int k = 0; k < Simulation.scatters.length; k++, vector /= base) {
+			int number = Math.min(vector % base, Simulation.numberOfReels);
+			if (scatterWin(Simulation.scatters[k], number) > 0) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Move stops of the leading reels to the next combination.
+	 *
+	 * @param stops
+	 *            Stops of the leading reels.
+	 * @param reels
+	 *            Reels strips.
+	 *
+	 * @return False if all combinations are done, true otherwise.
+	 */
+	private static boolean next(int[] stops, int[][] reels) {
+		for (int i = 0; i < stops.length; i++) {
+			stops[i]++;
+			if (stops[i] < reels[i].length) {
+				return true;
+			}
+			stops[i] = 0;
+		}
+
+		return false;
+	}
+}
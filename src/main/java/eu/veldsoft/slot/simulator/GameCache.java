@@ -0,0 +1,436 @@
+package eu.veldsoft.slot.simulator;
+
+import java.awt.Color;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * Compiled game structure stored in a binary file. The file is keyed by the
+ * content hash of the workbook and the names of the reels sheets, so it is
+ * used only while the workbook is not changed. Loading is done through a
+ * memory-mapped file and it takes a few milliseconds.
+ *
+ * @author Todor Balabanov
+ */
+final class GameCache {
+	/** File signature. */
+	private static final int MAGIC = 0x47414D45;
+
+	/** Version of the file format. */
+	private static final int VERSION = 2;
+
+	/** Flag of the symbols in the pay table. */
+	private static final int PAYTABLE = 1 << 5;
+
+	/** Use of the cache flag. */
+	static boolean enabled = true;
+
+	/** Folder of the cache files. */
+	static String folder = System.getProperty("java.io.tmpdir")
+			+ File.separator + "slot-simulator";
+
+	/**
+	 * SHA-256 hash of some bytes.
+	 *
+	 * @param data
+	 *            Bytes to hash.
+	 *
+	 * @return Hash value.
+	 */
+	private static byte[] hash(ByteBuffer data) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(data);
+			return digest.digest();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Hash of the workbook content and the reels sheets names.
+	 *
+	 * @param input
+	 *            Workbook file name.
+	 * @param base
+	 *            Base game reels sheet name.
+	 * @param free
+	 *            Free spins reels sheet name.
+	 *
+	 * @return Hash value.
+	 *
+	 * @throws IOException
+	 *             If the workbook is not readable.
+	 */
+	private static byte[] key(String input, String base, String free)
+			throws IOException {
+		try (FileChannel channel = FileChannel.open(Paths.get(input),
+				StandardOpenOption.READ)) {
+			byte content[] = hash(channel.map(FileChannel.MapMode.READ_ONLY,
+					0, channel.size()));
+			byte names[] = (base + "\n" + free)
+					.getBytes(StandardCharsets.UTF_8);
+
+			ByteBuffer buffer = ByteBuffer
+					.allocate(content.length + names.length);
+			buffer.put(content).put(names).flip();
+			return hash(buffer);
+		}
+	}
+
+	/**
+	 * Cache file of a workbook. Different sheets of the same workbook are
+	 * stored in different files.
+	 *
+	 * @param input
+	 *            Workbook file name.
+	 * @param base
+	 *            Base game reels sheet name.
+	 * @param free
+	 *            Free spins reels sheet name.
+	 *
+	 * @return Cache file path.
+	 */
+	private static Path file(String input, String base, String free) {
+		String name = new File(input).getAbsolutePath() + "\n" + base + "\n"
+				+ free;
+		byte id[] = hash(
+				ByteBuffer.wrap(name.getBytes(StandardCharsets.UTF_8)));
+
+		StringBuilder result = new StringBuilder(
+				new File(input).getName());
+		result.append('-');
+		for (int i = 0; i < 8; i++) {
+			result.append(String.format("%02x", id[i]));
+		}
+		result.append(".game");
+
+		return Paths.get(folder, result.toString());
+	}
+
+	/**
+	 * Write string as length and UTF-8 bytes.
+	 *
+	 * @param out
+	 *            Output to write to.
+	 * @param value
+	 *            String to write.
+	 *
+	 * @throws IOException
+	 *             If the output fails.
+	 */
+	private static void writeString(DataOutputStream out, String value)
+			throws IOException {
+		byte bytes[] = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Read string written as length and UTF-8 bytes.
+	 *
+	 * @param in
+	 *            Buffer to read from.
+	 *
+	 * @return The string.
+	 */
+	private static String readString(ByteBuffer in) {
+		byte bytes[] = new byte[in.getInt()];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Write reels strips as indices in the symbols list.
+	 *
+	 * @param out
+	 *            Output to write to.
+	 * @param strips
+	 *            Reels strips.
+	 *
+	 * @throws IOException
+	 *             If the output fails.
+	 */
+	private static void writeStrips(DataOutputStream out, String strips[][])
+			throws IOException {
+		out.writeInt(strips.length);
+		for (String strip[] : strips) {
+			out.writeInt(strip.length);
+			for (String name : strip) {
+				int index = 0;
+				while (Simulation.SYMBOLS.get(index).name.equals(name) == false) {
+					index++;
+				}
+				out.writeShort(index);
+			}
+		}
+	}
+
+	/**
+	 * Read reels strips written as indices in the symbols list.
+	 *
+	 * @param in
+	 *            Buffer to read from.
+	 *
+	 * @return Reels strips.
+	 */
+	private static String[][] readStrips(ByteBuffer in) {
+		String strips[][] = new String[in.getInt()][];
+		for (int i = 0; i < strips.length; i++) {
+			strips[i] = new String[in.getInt()];
+			for (int j = 0; j < strips[i].length; j++) {
+				strips[i][j] = Simulation.SYMBOLS.get(in.getShort()).name;
+			}
+		}
+
+		return strips;
+	}
+
+	/**
+	 * Store the loaded game structure. Errors are reported, but they do not
+	 * stop the program, because the cache is not obligatory.
+	 *
+	 * @param input
+	 *            Workbook file name.
+	 * @param base
+	 *            Base game reels sheet name.
+	 * @param free
+	 *            Free spins reels sheet name.
+	 */
+	static void store(String input, String base, String free) {
+		if (enabled == false) {
+			return;
+		}
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.write(key(input, base, free));
+
+			out.writeInt(Simulation.numberOfReels);
+			out.writeInt(Simulation.numberOfRows);
+			out.writeInt(Simulation.scatterMultiplier);
+			out.writeInt(Simulation.wildInLineMultiplier);
+			out.writeInt(Simulation.freeGamesMultiplier);
+			out.writeDouble(Simulation.targetRtp);
+
+			/* Symbols with their membership in the special sets. */
+			out.writeInt(Simulation.SYMBOLS.size());
+			for (Symbol symbol : Simulation.SYMBOLS) {
+				writeString(out, symbol.name);
+				out.writeInt(symbol.index);
+				out.writeInt(symbol.type.ordinal());
+
+				int flags = 0;
+				flags |= Simulation.WILDS.contains(symbol) ? Symbol.WILD : 0;
+				flags |= Simulation.EXTENDS.contains(symbol) ? Symbol.EXTEND
+						: 0;
+				flags |= Simulation.SCATTERS.contains(symbol) ? Symbol.SCATTER
+						: 0;
+				flags |= Simulation.FREES.contains(symbol) ? Symbol.FREE : 0;
+				flags |= Simulation.BONUSES.contains(symbol) ? Symbol.BONUS
+						: 0;
+				flags |= Simulation.PAYTABLE.contains(symbol) ? PAYTABLE : 0;
+				out.writeInt(flags);
+
+				out.writeInt(symbol.pays == null ? -1 : symbol.pays.length);
+				for (int i = 0; symbol.pays != null
+						&& i < symbol.pays.length; i++) {
+					out.writeInt(symbol.pays[i]);
+				}
+
+				out.writeInt(
+						symbol.picture == null ? -1 : symbol.picture.length);
+				if (symbol.picture != null) {
+					out.write(symbol.picture);
+				}
+			}
+
+			/* Lines. */
+			out.writeInt(Simulation.LINES.size());
+			for (Line line : Simulation.LINES) {
+				for (int i = 0; i < Simulation.numberOfReels; i++) {
+					out.writeInt(line.positions[i]);
+					for (int j = 0; j < Simulation.numberOfRows; j++) {
+						out.writeBoolean(line.pattern[i][j]);
+					}
+				}
+
+				out.writeBoolean(line.color != null);
+				out.writeInt(line.color == null ? 0 : line.color.getRGB());
+			}
+
+			writeStrips(out, Simulation.baseStrips);
+			writeStrips(out, Simulation.freeStrips);
+
+			out.writeInt(Simulation.coins.size());
+			for (int coin : Simulation.coins) {
+				out.writeInt(coin);
+			}
+		} catch (IOException e) {
+			System.err.println(e);
+			return;
+		}
+
+		/* The cache file is replaced only when it is complete. */
+		Path target = file(input, base, free);
+		Path temporary = Paths.get(target + ".tmp");
+		try {
+			Files.createDirectories(target.getParent());
+			Files.write(temporary, bytes.toByteArray());
+			Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			System.err.println(e);
+		}
+	}
+
+	/**
+	 * Load the game structure from the cache.
+	 *
+	 * @param input
+	 *            Workbook file name.
+	 * @param base
+	 *            Base game reels sheet name.
+	 * @param free
+	 *            Free spins reels sheet name.
+	 *
+	 * @return True if the cache is fresh and it is loaded, false if the
+	 *         workbook should be loaded.
+	 */
+	static boolean load(String input, String base, String free) {
+		if (enabled == false) {
+			return false;
+		}
+
+		Path path = file(input, base, free);
+		if (Files.exists(path) == false) {
+			return false;
+		}
+
+		try (FileChannel channel = FileChannel.open(path,
+				StandardOpenOption.READ)) {
+			MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+					channel.size());
+
+			if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+				return false;
+			}
+
+			byte stored[] = new byte[32];
+			in.get(stored);
+			if (Arrays.equals(stored, key(input, base, free)) == false) {
+				return false;
+			}
+
+			Simulation.SYMBOLS.clear();
+			Simulation.PAYTABLE.clear();
+			Simulation.LINES.clear();
+			Simulation.coins.clear();
+			Simulation.WILDS.clear();
+			Simulation.EXTENDS.clear();
+			Simulation.SCATTERS.clear();
+			Simulation.FREES.clear();
+			Simulation.BONUSES.clear();
+
+			Simulation.numberOfReels = in.getInt();
+			Simulation.numberOfRows = in.getInt();
+			Simulation.scatterMultiplier = in.getInt();
+			Simulation.wildInLineMultiplier = in.getInt();
+			Simulation.freeGamesMultiplier = in.getInt();
+			Simulation.targetRtp = in.getDouble();
+
+			/* Symbols with their membership in the special sets. */
+			for (int s = in.getInt(); s > 0; s--) {
+				Symbol symbol = new Symbol();
+				symbol.name = readString(in);
+				symbol.index = in.getInt();
+				symbol.type = Symbol.Type.values()[in.getInt()];
+
+				int flags = in.getInt();
+				if ((flags & Symbol.WILD) != 0) {
+					Simulation.WILDS.add(symbol);
+				}
+				if ((flags & Symbol.EXTEND) != 0) {
+					Simulation.EXTENDS.add(symbol);
+				}
+				if ((flags & Symbol.SCATTER) != 0) {
+					Simulation.SCATTERS.add(symbol);
+				}
+				if ((flags & Symbol.FREE) != 0) {
+					Simulation.FREES.add(symbol);
+				}
+				if ((flags & Symbol.BONUS) != 0) {
+					Simulation.BONUSES.add(symbol);
+				}
+				if ((flags & PAYTABLE) != 0) {
+					Simulation.PAYTABLE.add(symbol);
+				}
+
+				int length = in.getInt();
+				if (length >= 0) {
+					symbol.pays = new int[length];
+					for (int i = 0; i < length; i++) {
+						symbol.pays[i] = in.getInt();
+					}
+				}
+
+				length = in.getInt();
+				if (length >= 0) {
+					symbol.picture = new byte[length];
+					in.get(symbol.picture);
+				}
+
+				Simulation.SYMBOLS.add(symbol);
+			}
+
+			/* Lines. */
+			for (int l = in.getInt(); l > 0; l--) {
+				Line line = new Line();
+				line.positions = new int[Simulation.numberOfReels];
+				line.pattern = new boolean[Simulation.numberOfReels][Simulation.numberOfRows];
+				for (int i = 0; i < Simulation.numberOfReels; i++) {
+					line.positions[i] = in.getInt();
+					for (int j = 0; j < Simulation.numberOfRows; j++) {
+						line.pattern[i][j] = in.get() != 0;
+					}
+				}
+
+				boolean colored = in.get() != 0;
+				int rgb = in.getInt();
+				line.color = colored == true ? new Color(rgb) : null;
+
+				Simulation.LINES.add(line);
+			}
+
+			Simulation.baseStrips = readStrips(in);
+			Simulation.freeStrips = readStrips(in);
+
+			for (int c = in.getInt(); c > 0; c--) {
+				Simulation.coins.add(in.getInt());
+			}
+		} catch (IOException | BufferUnderflowException
+				| IndexOutOfBoundsException e) {
+			System.err.println(e);
+			return false;
+		}
+
+		return true;
+	}
+}
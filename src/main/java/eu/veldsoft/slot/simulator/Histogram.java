@@ -0,0 +1,195 @@
+package eu.veldsoft.slot.simulator;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Distribution of the wins according their amount. Small wins are counted
+ * exactly in a dense array. Big wins are counted in logarithmic buckets, each
+ * power of two split in equal sub-buckets (as in HDR histograms), so the
+ * relative error of the tail is less than one percent.
+ * 
+ * @author Todor Balabanov
+ */
+final class Histogram {
+	/** Power of two for the size of the exactly counted values. */
+	private static final int DENSE_BITS = 14;
+
+	/** Number of the exactly counted values. */
+	private static final int DENSE_SIZE = 1 << DENSE_BITS;
+
+	/** Power of two for the number of sub-buckets in each power of two. */
+	private static final int SUB_BITS = 7;
+
+	/** Number of sub-buckets in each power of two. */
+	private static final int SUB_SIZE = 1 << SUB_BITS;
+
+	/** Counters of the small values. */
+	private final long dense[] = new long[DENSE_SIZE];
+
+	/** Counters of the big values in logarithmic buckets. */
+	private final long tail[] = new long[(Integer.SIZE - 1 - DENSE_BITS)
+			* SUB_SIZE];
+
+	/**
+	 * Cumulative counts used for the reports, null when outdated. The reports
+	 * can be read by more than one thread, so the array is published only
+	 * after it is filled.
+	 */
+	private volatile long cumulative[] = null;
+
+	/**
+	 * Index of the bucket in the tail.
+	 * 
+	 * @param value
+	 *            Value not smaller than the dense size.
+	 * 
+	 * @return Bucket index.
+	 */
+	private static int bucket(int value) {
+		int power = Integer.SIZE - 1 - Integer.numberOfLeadingZeros(value);
+		int shift = power - SUB_BITS;
+		return (power - DENSE_BITS) * SUB_SIZE + (value >>> shift) - SUB_SIZE;
+	}
+
+	/**
+	 * Count single value.
+	 * 
+	 * @param value
+	 *            Non-negative value.
+	 */
+	void add(int value) {
+		if (value < DENSE_SIZE) {
+			dense[value]++;
+		} else {
+			tail[bucket(value)]++;
+		}
+
+		/* Volatile write is avoided in the most common case. */
+		if (cumulative != null) {
+			cumulative = null;
+		}
+	}
+
+	/**
+	 * Merge counters of other histogram into this one.
+	 * 
+	 * @param other
+	 *            Histogram to be added.
+	 */
+	void merge(Histogram other) {
+		for (int i = 0; i < dense.length; i++) {
+			dense[i] += other.dense[i];
+		}
+		for (int i = 0; i < tail.length; i++) {
+			tail[i] += other.tail[i];
+		}
+
+		cumulative = null;
+	}
+
+	/**
+	 * Write the counters in binary form. Only the non-zero counters are
+	 * written as pairs of index and value.
+	 * 
+	 * @param out
+	 *            Output to write to.
+	 * 
+	 * @throws IOException
+	 *             If the output fails.
+	 */
+	void write(DataOutput out) throws IOException {
+		int size = 0;
+		for (int i = 0; i < dense.length + tail.length; i++) {
+			if ((i < dense.length ? dense[i] : tail[i - dense.length]) != 0) {
+				size++;
+			}
+		}
+
+		out.writeInt(size);
+		for (int i = 0; i < dense.length + tail.length; i++) {
+			long value = i < dense.length ? dense[i] : tail[i - dense.length];
+			if (value == 0) {
+				continue;
+			}
+
+			out.writeInt(i);
+			out.writeLong(value);
+		}
+	}
+
+	/**
+	 * Read the counters written in binary form.
+	 * 
+	 * @param in
+	 *            Input to read from.
+	 * 
+	 * @throws IOException
+	 *             If the input fails.
+	 */
+	void read(DataInput in) throws IOException {
+		Arrays.fill(dense, 0L);
+		Arrays.fill(tail, 0L);
+
+		for (int size = in.readInt(); size > 0; size--) {
+			int i = in.readInt();
+			long value = in.readLong();
+			if (i < dense.length) {
+				dense[i] = value;
+			} else {
+				tail[i - dense.length] = value;
+			}
+		}
+
+		cumulative = null;
+	}
+
+	/**
+	 * Number of values smaller than the limit. Values in the tail are counted
+	 * according the lower bound of their bucket.
+	 * 
+	 * @param limit
+	 *            Upper limit (exclusive).
+	 * 
+	 * @return Number of values.
+	 */
+	private long below(int limit) {
+		long cumulative[] = this.cumulative;
+		if (cumulative == null) {
+			cumulative = new long[dense.length + tail.length + 1];
+			for (int i = 0; i < dense.length; i++) {
+				cumulative[i + 1] = cumulative[i] + dense[i];
+			}
+			for (int i = 0; i < tail.length; i++) {
+				cumulative[dense.length + i + 1] = cumulative[dense.length + i]
+						+ tail[i];
+			}
+			this.cumulative = cumulative;
+		}
+
+		if (limit <= 0) {
+			return 0L;
+		}
+		if (limit <= DENSE_SIZE) {
+			return cumulative[limit];
+		}
+
+		return cumulative[dense.length + bucket(limit - 1) + 1];
+	}
+
+	/**
+	 * Number of values in a range.
+	 * 
+	 * @param from
+	 *            Lower bound of the range (inclusive).
+	 * @param to
+	 *            Upper bound of the range (exclusive).
+	 * 
+	 * @return Number of values.
+	 */
+	long count(int from, int to) {
+		return below(to) - below(from);
+	}
+}
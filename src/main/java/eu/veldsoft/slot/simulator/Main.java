@@ -24,13 +24,12 @@
 package eu.veldsoft.slot.simulator;
 
 import java.awt.Color;
-import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.Set;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -39,39 +38,13 @@ import org.apache.commons.cli.HelpFormatter;
 import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
-import org.apache.poi.xssf.usermodel.XSSFPictureData;
-import org.apache.poi.xssf.usermodel.XSSFSheet;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
-
-import javafx.application.Application;
-import javafx.beans.value.ChangeListener;
-import javafx.beans.value.ObservableValue;
-import javafx.scene.Scene;
-import javafx.scene.chart.LineChart;
-import javafx.scene.chart.NumberAxis;
-import javafx.scene.chart.ScatterChart;
-import javafx.scene.chart.XYChart;
-import javafx.scene.control.Alert;
-import javafx.scene.control.Alert.AlertType;
-import javafx.scene.control.Button;
-import javafx.scene.control.CheckBox;
-import javafx.scene.control.Label;
-import javafx.scene.control.TextField;
-import javafx.scene.image.Image;
-import javafx.scene.image.ImageView;
-import javafx.scene.layout.BorderPane;
-import javafx.scene.layout.GridPane;
-import javafx.scene.layout.HBox;
-import javafx.scene.layout.StackPane;
-import javafx.scene.layout.VBox;
-import javafx.stage.Stage;
 
 /**
  * Application single entry point class.
  * 
  * @author Todor Balabanov
  */
-public class Main extends Application {
+public class Main {
 	/** Application mode flag. */
 	private static enum Mode {
 		OTHER, VISUALIZATION, SIMULATION
@@ -145,7 +118,47 @@ public class Main extends Application {
 	}
 
 	/**
-	 * Load data structures from Excel file.
+	 * Load reels strips from a sheet. Each reel is in a separate column and it
+	 * ends at the first cell which is not a symbol name.
+	 * 
+	 * @param sheet
+	 *            Sheet with the reels.
+	 * @param numberOfReels
+	 *            Number of reels.
+	 * 
+	 * @return Reels strips.
+	 */
+	private static String[][] loadStrips(WorkbookReader.Sheet sheet,
+			int numberOfReels) {
+		Set<String> names = new HashSet<String>();
+		for (Symbol symbol : Simulation.SYMBOLS) {
+			names.add(symbol.name);
+		}
+
+		String strips[][] = new String[numberOfReels][];
+		for (int c = 0; c < strips.length; c++) {
+			/* Calculate length of the reel. */
+			int length = 0;
+			while (sheet.isText(length, c) == true
+					&& names.contains(sheet.text(length, c)) == true) {
+				length++;
+			}
+
+			/* Read the reel itself. */
+			strips[c] = new String[length];
+			for (int r = 0; r < strips[c].length; r++) {
+				strips[c][r] = sheet.text(r, c);
+			}
+		}
+
+		return strips;
+	}
+
+	/**
+	 * Load data structures from Excel file. Only the sheets of the game are
+	 * parsed and the symbols images are kept encoded until the visualization
+	 * needs them. The loaded structures are compiled in a cache file, which is
+	 * used instead of the workbook until the workbook is changed.
 	 * 
 	 * @param inputFileName
 	 *            Name of the input file.
@@ -154,12 +167,20 @@ public class Main extends Application {
 	 * @param freeReelsSheetName
 	 *            Name of the free spins reels sheet.
 	 */
-	private static void loadGameStructure(String inputFileName,
+	static void loadGameStructure(String inputFileName,
 			String baseReelsSheetName, String freeReelsSheetName) {
-		XSSFWorkbook workbook = null;
+		/* Compiled game is used while the workbook is not changed. */
+		if (GameCache.load(inputFileName, baseReelsSheetName,
+				freeReelsSheetName) == true) {
+			return;
+		}
+
+		WorkbookReader workbook = null;
 		try {
-			workbook = new XSSFWorkbook(
-					new FileInputStream(new File(inputFileName)));
+			workbook = WorkbookReader.read(inputFileName,
+					new HashSet<String>(Arrays.asList("Summary", "Symbols",
+							"Paytable", "Lines", baseReelsSheetName,
+							freeReelsSheetName, "Bills Loading")));
 		} catch (IOException e) {
 			System.out
 					.println("Input file " + inputFileName + " is not usable!");
@@ -167,90 +188,91 @@ public class Main extends Application {
 			System.exit(0);
 		}
 
-		XSSFSheet sheet = null;
+		/* All sheets except bills are obligatory. */
+		for (String name : new String[] { "Summary", "Symbols", "Paytable",
+				"Lines", baseReelsSheetName, freeReelsSheetName }) {
+			if (workbook.sheet(name) == null) {
+				System.out.println("Sheet " + name + " is missing in "
+						+ inputFileName + "!");
+				System.exit(0);
+			}
+		}
+
+		WorkbookReader.Sheet sheet = null;
 
 		/* Load common game information. */
-		sheet = workbook.getSheet("Summary");
-		int numberOfReels = (int) sheet.getRow(1).getCell(1)
-				.getNumericCellValue();
-		int numberOfRows = (int) sheet.getRow(2).getCell(1)
-				.getNumericCellValue();
-		int numberOfLines = (int) sheet.getRow(3).getCell(1)
-				.getNumericCellValue();
-		int numberOfSymbols = (int) sheet.getRow(4).getCell(1)
-				.getNumericCellValue();
-		// double rtp = targetRtp =
-		// sheet.getRow(5).getCell(1).getNumericCellValue();
-		Simulation.scatterMultiplier = (int) (sheet.getRow(7).getCell(1)
-				.getNumericCellValue());
-		Simulation.wildInLineMultiplier = (int) sheet.getRow(8).getCell(1)
-				.getNumericCellValue();
-		Simulation.freeGamesMultiplier = (int) sheet.getRow(9).getCell(1)
-				.getNumericCellValue();
+		sheet = workbook.sheet("Summary");
+		int numberOfReels = (int) sheet.number(1, 1);
+		int numberOfRows = (int) sheet.number(2, 1);
+		int numberOfLines = (int) sheet.number(3, 1);
+		int numberOfSymbols = (int) sheet.number(4, 1);
+		Simulation.numberOfReels = numberOfReels;
+		Simulation.numberOfRows = numberOfRows;
+		Simulation.targetRtp = sheet.number(5, 1);
+		Simulation.scatterMultiplier = (int) sheet.number(7, 1);
+		Simulation.wildInLineMultiplier = (int) sheet.number(8, 1);
+		Simulation.freeGamesMultiplier = (int) sheet.number(9, 1);
 
 		/* Read all symbols images. */
-		List<XSSFPictureData> images = workbook.getAllPictures();
+		List<byte[]> images = workbook.pictures();
 
 		/* Store all symbol names and mark special like wilds and scatters. */
+		Simulation.SYMBOLS.clear();
+		Simulation.PAYTABLE.clear();
+		Simulation.LINES.clear();
+		Simulation.coins.clear();
 		Simulation.WILDS.clear();
 		Simulation.EXTENDS.clear();
 		Simulation.SCATTERS.clear();
 		Simulation.FREES.clear();
 		Simulation.BONUSES.clear();
-		sheet = workbook.getSheet("Symbols");
+		sheet = workbook.sheet("Symbols");
 		for (int s = 1; s <= numberOfSymbols; s++) {
 			Symbol symbol = new Symbol();
 
-			symbol.name = sheet.getRow(s).getCell(0).getStringCellValue()
-					.toString();
-			symbol.index = (int) sheet.getRow(s).getCell(2)
-					.getNumericCellValue();
+			symbol.name = sheet.text(s, 0);
+			symbol.index = (int) sheet.number(s, 2);
 			symbol.type = Symbol.Type.REGULAR;
 
-			if (sheet.getRow(s).getCell(1).getStringCellValue()
-					.contains("Wild") == true) {
+			String kind = sheet.text(s, 1);
+			if (kind.contains("Wild") == true) {
 				symbol.type = Symbol.Type.WILD;
 				Simulation.WILDS.add(symbol);
 			}
 
-			if (sheet.getRow(s).getCell(1).getStringCellValue()
-					.contains("Extend") == true) {
+			if (kind.contains("Extend") == true) {
 				symbol.type = Symbol.Type.EXTEND;
 				Simulation.WILDS.add(symbol);
 				Simulation.EXTENDS.add(symbol);
 			}
 
-			if (sheet.getRow(s).getCell(1).getStringCellValue()
-					.contains("Scatter") == true) {
+			if (kind.contains("Scatter") == true) {
 				symbol.type = Symbol.Type.SCATTER;
 				Simulation.SCATTERS.add(symbol);
 			}
 
-			if (sheet.getRow(s).getCell(1).getStringCellValue()
-					.contains("Free") == true) {
+			if (kind.contains("Free") == true) {
 				symbol.type = Symbol.Type.FREE;
 				Simulation.FREES.add(symbol);
 			}
 
-			if (sheet.getRow(s).getCell(1).getStringCellValue()
-					.contains("Bonus") == true) {
+			if (kind.contains("Bonus") == true) {
 				symbol.type = Symbol.Type.BONUS;
 				Simulation.BONUSES.add(symbol);
 			}
 
-			symbol.image = new Image(
-					new ByteArrayInputStream(images.get(s - 1).getData()));
+			/* Image is decoded by the visualization when it is needed. */
+			symbol.picture = images.get(s - 1);
 
 			Simulation.SYMBOLS.add(symbol);
 		}
 
 		/* Load pay table. */
-		sheet = workbook.getSheet("Paytable");
+		sheet = workbook.sheet("Paytable");
 		for (int r = 1; r <= Simulation.SYMBOLS.size(); r++) {
 			int pays[] = new int[numberOfReels + 1];
 			for (int c = 1; c <= numberOfReels; c++) {
-				pays[c] = (int) (sheet.getRow(r).getCell(numberOfReels - c + 1)
-						.getNumericCellValue());
+				pays[c] = (int) sheet.number(r, numberOfReels - c + 1);
 			}
 
 			for (Symbol symbol : Simulation.SYMBOLS) {
@@ -265,8 +287,7 @@ public class Main extends Application {
 		}
 
 		/* Load lines. */
-		sheet = workbook.getSheet("Lines");
-		Simulation.winnerLines = new int[numberOfLines];
+		sheet = workbook.sheet("Lines");
 		for (int l = 0; l < numberOfLines; l++) {
 			Line line = new Line();
 			line.positions = new int[numberOfReels];
@@ -274,124 +295,48 @@ public class Main extends Application {
 			Simulation.LINES.add(line);
 
 			/* Load line color. */
-			byte[] rgb = sheet.getRow(l * (numberOfRows + 1)).getCell(0)
-					.getCellStyle().getFillBackgroundXSSFColor().getRGB();
-			Simulation.LINES.get(l).color = new Color(rgb[0] & 0xFF,
-					rgb[1] & 0xFF, rgb[2] & 0xFF);
+			byte[] rgb = workbook
+					.fill(sheet.style(l * (numberOfRows + 1), 0)).getRGB();
+			line.color = new Color(rgb[0] & 0xFF, rgb[1] & 0xFF,
+					rgb[2] & 0xFF);
 
 			/* Load line mask. */
 			for (int r = 0; r < numberOfRows; r++) {
 				for (int c = 0; c < numberOfReels; c++) {
-					if (sheet.getRow(l * (numberOfRows + 1) + r).getCell(c)
-							.getStringCellValue().contains("*") == true) {
-						Simulation.LINES.get(l).positions[c] = r;
-						Simulation.LINES.get(l).pattern[c][r] = true;
-					} else if (sheet.getRow(l * (numberOfRows + 1) + r)
-							.getCell(c).getStringCellValue()
-							.contains("O") == true) {
-						Simulation.LINES.get(l).pattern[c][r] = false;
+					String mark = sheet.text(l * (numberOfRows + 1) + r, c);
+					if (mark.contains("*") == true) {
+						line.positions[c] = r;
+						line.pattern[c][r] = true;
+					} else if (mark.contains("O") == true) {
+						line.pattern[c][r] = false;
 					}
 				}
 			}
 		}
 
 		/* Load base game reels. */
-		sheet = workbook.getSheet(baseReelsSheetName);
-		Simulation.baseStrips = new String[numberOfReels][];
-		for (int c = 0; c < Simulation.baseStrips.length; c++) {
-			/* Calculate length of the reel. */
-			int length = 0;
-			for (int r = 0; true; r++) {
-				try {
-					/* Check for valid symbol values. */
-					String value = sheet.getRow(r).getCell(c)
-							.getStringCellValue();
-
-					boolean found = false;
-					for (Symbol symbol : Simulation.SYMBOLS) {
-						if (symbol.name.equals(value) == true) {
-							found = true;
-						}
-					}
-
-					if (found == false) {
-						break;
-					}
-				} catch (Exception e) {
-					break;
-				}
-
-				length++;
-			}
-
-			/* Read the reel itself. */
-			Simulation.baseStrips[c] = new String[length];
-			for (int r = 0; r < Simulation.baseStrips[c].length; r++) {
-				Simulation.baseStrips[c][r] = sheet.getRow(r).getCell(c)
-						.getStringCellValue();
-			}
-		}
+		Simulation.baseStrips = loadStrips(
+				workbook.sheet(baseReelsSheetName), numberOfReels);
 
 		/* Load free spins reels. */
-		sheet = workbook.getSheet(freeReelsSheetName);
-		Simulation.freeStrips = new String[numberOfReels][];
-		for (int c = 0; c < Simulation.freeStrips.length; c++) {
-			/* Calculate length of the reel. */
-			int length = 0;
-			for (int r = 0; true; r++) {
-				try {
-					/* Check for valid symbol values. */
-					String value = sheet.getRow(r).getCell(c)
-							.getStringCellValue();
-
-					boolean found = false;
-					for (Symbol symbol : Simulation.SYMBOLS) {
-						if (symbol.name.equals(value) == true) {
-							found = true;
-						}
-					}
-
-					if (found == false) {
-						break;
-					}
-				} catch (Exception e) {
-					break;
-				}
-
-				length++;
-			}
-
-			/*
-			 * Read the reel itself.
-			 */
-			Simulation.freeStrips[c] = new String[length];
-			for (int r = 0; r < Simulation.freeStrips[c].length; r++) {
-				Simulation.freeStrips[c][r] = sheet.getRow(r).getCell(c)
-						.getStringCellValue();
-			}
-		}
+		Simulation.freeStrips = loadStrips(
+				workbook.sheet(freeReelsSheetName), numberOfReels);
 
 		/* Load bills list. */
-		sheet = workbook.getSheet("Bills Loading");
-		for (int r = 1; true; r++) {
-			try {
-				/* Check for valid number values. */
-				int bill = (int) sheet.getRow(r).getCell(0)
-						.getNumericCellValue();
-				int amount = (int) sheet.getRow(r).getCell(1)
-						.getNumericCellValue();
-
-				/* Bills have 100 coins. */
-				for (int i = 0; i < amount; i++) {
-					Simulation.coins.add(bill * 100);
-				}
-			} catch (Exception e) {
-				break;
+		sheet = workbook.sheet("Bills Loading");
+		for (int r = 1; sheet != null && sheet.isNumber(r, 0) == true
+				&& sheet.isNumber(r, 1) == true; r++) {
+			int bill = (int) sheet.number(r, 0);
+			int amount = (int) sheet.number(r, 1);
+
+			/* Bills have 100 coins. */
+			for (int i = 0; i < amount; i++) {
+				Simulation.coins.add(bill * 100);
 			}
 		}
 
-		Simulation.view = new Symbol[numberOfReels][numberOfRows];
-		Simulation.winners = new boolean[numberOfReels][numberOfRows];
+		GameCache.store(inputFileName, baseReelsSheetName,
+				freeReelsSheetName);
 	}
 
 	/**
@@ -453,7 +398,7 @@ public class Main extends Application {
 		}
 
 		/* Populate initial reels. */
-		String strips[][] = new String[Simulation.view.length][(int) total];
+		String strips[][] = new String[Simulation.numberOfReels][(int) total];
 		for (int symbol = 0, level = 0; symbol < values.length; symbol++) {
 			for (int counter = 0; counter < values[symbol]; counter++) {
 				for (int reel = 0; reel < strips.length; reel++) {
@@ -466,11 +411,6 @@ public class Main extends Application {
 		return strips;
 	}
 
-	/** Graphic interface run. */
-	private static void visualize(String[] args) {
-		Application.launch(args);
-	}
-
 	/**
 	 * Application single entry point method.
 	 * 
@@ -509,6 +449,52 @@ public class Main extends Application {
 				.argName("number").hasArg().valueSeparator()
 				.desc("Progress on each iteration number (default 1m).")
 				.build());
+		options.addOption(Option.builder("threads").argName("number")
+				.hasArg().valueSeparator()
+				.desc("Number of parallel simulation threads (default 1).")
+				.build());
+
+		options.addOption(Option.builder("prng").argName("name").hasArg()
+				.valueSeparator()
+				.desc("Pseudo-random number generator: mersenne, splitmix, xoroshiro or pcg (default xoroshiro).")
+				.build());
+		options.addOption(Option.builder("seed").argName("number").hasArg()
+				.valueSeparator()
+				.desc("Seed of the pseudo-random number generators for reproducible runs.")
+				.build());
+
+		options.addOption(Option.builder("precision").argName("percent")
+				.hasArg().valueSeparator()
+				.desc("Stop when the total RTP confidence interval is narrower than +/- percent (the number of games is upper limit).")
+				.build());
+		options.addOption(Option.builder("confidence").argName("percent")
+				.hasArg().valueSeparator()
+				.desc("Confidence level of the total RTP interval (default 99).")
+				.build());
+
+		options.addOption(Option.builder("sessions").argName("number")
+				.hasArg().valueSeparator()
+				.desc("Simulate number of player sessions with the bills loading schedule instead of single long run.")
+				.build());
+
+		options.addOption(Option.builder("checkpoint").argName("file")
+				.hasArg().valueSeparator()
+				.desc("Store the simulation state in a file after each progress interval.")
+				.build());
+		options.addOption(Option.builder("resume").argName("file").hasArg()
+				.valueSeparator()
+				.desc("Continue the simulation from a checkpoint file and keep storing checkpoints in it.")
+				.build());
+
+		options.addOption(Option.builder("output").argName("file").hasArg()
+				.valueSeparator()
+				.desc("Write the statistics in Excel file.").build());
+		options.addOption(new Option("outputbalance", false,
+				"Write the balance curves in the Excel file too (one sheet per thread)."));
+		options.addOption(Option.builder("balancefile").argName("file")
+				.hasArg().valueSeparator()
+				.desc("Write the full balance curve in binary file of 32-bit integers (one file per thread).")
+				.build());
 
 		options.addOption(Option.builder("binsize").argName("size").hasArg()
 				.valueSeparator()
@@ -532,8 +518,43 @@ public class Main extends Application {
 				.desc("Determine shuffle stacked repeats (default 1 - no repeats).")
 				.build());
 
+		options.addOption(Option.builder("optimize").argName("file").hasArg()
+				.valueSeparator()
+				.desc("Evolve the loaded reels to the targets and write them in copy of the input file as new sheets.")
+				.build());
+		options.addOption(Option.builder("targetrtp").argName("percent")
+				.hasArg().valueSeparator()
+				.desc("Target RTP of the reels optimization (default RTP in the Summary sheet).")
+				.build());
+		options.addOption(Option.builder("targethitrate").argName("percent")
+				.hasArg().valueSeparator()
+				.desc("Target hit frequency of the base game in the reels optimization.")
+				.build());
+		options.addOption(Option.builder("targetdeviation")
+				.argName("number").hasArg().valueSeparator()
+				.desc("Target standard deviation of the game win in total bets in the reels optimization.")
+				.build());
+		options.addOption(Option.builder("population").argName("number")
+				.hasArg().valueSeparator()
+				.desc("Number of candidate reels in the reels optimization (default 20).")
+				.build());
+		options.addOption(Option.builder("evolutions").argName("number")
+				.hasArg().valueSeparator()
+				.desc("Number of evolutions in the reels optimization (default 50).")
+				.build());
+		options.addOption(Option.builder("evaluation").argName("number")
+				.hasArg().valueSeparator()
+				.desc("Number of base games for evaluation of candidate reels (default 100k).")
+				.build());
+		options.addOption(Option.builder("verification").argName("number")
+				.hasArg().valueSeparator()
+				.desc("Number of base games for the check of the optimized reels (default 2m).")
+				.build());
+
 		options.addOption(new Option("bruteforce", false,
 				"Switch on brute force only for the base game."));
+		options.addOption(new Option("exact", false,
+				"Exact calculation only for the base game without wilds expansion."));
 		options.addOption(
 				new Option("freeoff", false, "Switch off free spins."));
 		options.addOption(new Option("wildsoff", false, "Switch off wilds."));
@@ -552,8 +573,14 @@ public class Main extends Application {
 		options.addOption(new Option("arabiannights", false,
 				"Arabian Nights rules of simulation."));
 
+		options.addOption(new Option("nocache", false,
+				"Load the workbook without compiled game cache."));
 		options.addOption(
 				new Option("verbose", false, "Print intermediate results."));
+		options.addOption(new Option("profile", false,
+				"Measure throughput and time of the game phases."));
+		options.addOption(new Option("jmx", false,
+				"Expose the running simulation as JMX managed bean."));
 		options.addOption(
 				new Option("verify", false, "Print input data structures."));
 
@@ -625,6 +652,31 @@ public class Main extends Application {
 					.valueOf(commands.getOptionValue("binincrement"));
 		}
 
+		/* Select pseudo-random number generator. */
+		if (commands.hasOption("prng") == true) {
+			try {
+				Util.prngType = Prng.of(commands.getOptionValue("prng"));
+			} catch (IllegalArgumentException e) {
+				System.out.println("Unknown pseudo-random number generator "
+						+ commands.getOptionValue("prng") + "!");
+				System.out.println();
+				(new HelpFormatter()).printHelp("java Main", options, true);
+				System.out.println();
+				System.exit(0);
+			}
+		}
+
+		/* Seed for reproducible runs. */
+		if (commands.hasOption("seed") == true) {
+			Util.seed = Long.valueOf(commands.getOptionValue("seed"));
+		}
+		Util.PRNG = Util.prngType.streams(Util.seed, 1)[0];
+
+		/* Compiled game cache. */
+		if (commands.hasOption("nocache") == true) {
+			GameCache.enabled = false;
+		}
+
 		/* Reading of input file and reels data sheet. */
 		loadGameStructure(inputFileName, baseReelsSheetName,
 				freeReelsSheetName);
@@ -649,12 +701,18 @@ public class Main extends Application {
 
 		/* Shuffle loaded reels with stacked size value. */
 		if (commands.hasOption("shuffle") == true) {
-			Modeling.shuffle(Simulation.baseStrips,
-					Integer.valueOf(commands.getOptionValue("shuffle")),
-					Modeling.numberOfAllowedStackRepeats);
-			Modeling.shuffle(Simulation.freeStrips,
-					Integer.valueOf(commands.getOptionValue("shuffle")),
-					Modeling.numberOfAllowedStackRepeats);
+			try {
+				Modeling.shuffle(Simulation.baseStrips,
+						Integer.valueOf(commands.getOptionValue("shuffle")),
+						Modeling.numberOfAllowedStackRepeats);
+				Modeling.shuffle(Simulation.freeStrips,
+						Integer.valueOf(commands.getOptionValue("shuffle")),
+						Modeling.numberOfAllowedStackRepeats);
+			} catch (IllegalArgumentException e) {
+				System.out.println(e.getMessage());
+				System.out.println();
+				System.exit(0);
+			}
 			Simulation.initialize();
 			Modeling.printDataStructures();
 			System.exit(0);
@@ -716,11 +774,26 @@ public class Main extends Application {
 			Simulation.bruteForce = true;
 		}
 
+		/* Calculate the base game instead of Monte Carlo simulation. */
+		if (commands.hasOption("exact") == true) {
+			Simulation.exact = true;
+		}
+
 		/* Print calculation progress. */
 		if (commands.hasOption("verbose") == true) {
 			Simulation.verboseOutput = true;
 		}
 
+		/* Measure throughput and time of the game phases. */
+		if (commands.hasOption("profile") == true) {
+			Simulation.profile = true;
+		}
+
+		/* Live view of the simulation over JMX. */
+		if (commands.hasOption("jmx") == true) {
+			Simulation.monitor = Monitor.register();
+		}
+
 		/* Default number of simulation. */
 		long numberOfSimulations = 20_000_000L;
 
@@ -737,6 +810,23 @@ public class Main extends Application {
 			}
 		}
 
+		/* Stop on target precision of the total RTP. */
+		if (commands.hasOption("precision") == true) {
+			Simulation.precision = Double
+					.valueOf(commands.getOptionValue("precision")) / 100D;
+
+			/* Without given number of games it is not limited. */
+			if (commands.hasOption("generations") == false) {
+				numberOfSimulations = Long.MAX_VALUE;
+			}
+		}
+
+		/* Confidence level of the total RTP interval. */
+		if (commands.hasOption("confidence") == true) {
+			Simulation.confidence = Double
+					.valueOf(commands.getOptionValue("confidence")) / 100D;
+		}
+
 		/* Adjust progress reporting interval. */
 		if (commands.hasOption("progress") == true) {
 			try {
@@ -748,420 +838,156 @@ public class Main extends Application {
 			}
 		}
 
-		/* Calculate all combinations in base game. */
-		if (Simulation.bruteForce == true) {
-			numberOfSimulations = Simulation.baseGameNumberOfCombinations();
-		}
-
-		if (mode == Mode.SIMULATION) {
-			Simulation.simulate(numberOfSimulations, progressPrintOnIteration);
-			System.exit(0);
+		/* Adjust number of parallel simulation threads. */
+		if (commands.hasOption("threads") == true) {
+			try {
+				Simulation.numberOfThreads = Integer
+						.valueOf(commands.getOptionValue("threads"));
+			} catch (Exception e) {
+			}
 		}
 
-		if (mode == Mode.VISUALIZATION) {
-			visualize(args);
+		/* Periodic checkpoints of the simulation state. */
+		if (commands.hasOption("checkpoint") == true) {
+			Simulation.checkpointFile = commands.getOptionValue("checkpoint");
 		}
-	}
 
-	@Override
-	public void start(Stage stage) throws Exception {
-		GridPane screenGrid = new GridPane();
+		/* Continue interrupted simulation if there is a checkpoint. */
+		if (commands.hasOption("resume") == true) {
+			Simulation.checkpointFile = commands.getOptionValue("resume");
 
-		/* Setup initial screen. */
-		final HBox[][] symbolsBorders = (HBox[][]) new HBox[Simulation.view.length][];
-		final ImageView[][] symbolsViews = (ImageView[][]) new ImageView[Simulation.view.length][];
-		for (int i = 0, k = 0; i < Simulation.view.length; i++) {
-			symbolsBorders[i] = new HBox[Simulation.view[i].length];
-			symbolsViews[i] = new ImageView[Simulation.view[i].length];
-			for (int j = 0; j < Simulation.view[i].length; j++, k++) {
-				symbolsViews[i][j] = new ImageView();
-				symbolsBorders[i][j] = new HBox(symbolsViews[i][j]);
-
-				symbolsBorders[i][j].setStyle(
-						"-fx-border-color: black; -fx-border-width: 5;");
-
-				screenGrid.add(symbolsBorders[i][j], i, j);
+			if (new File(Simulation.checkpointFile).exists() == true) {
+				try {
+					Simulation.resumed = Checkpoint
+							.load(Simulation.checkpointFile);
+				} catch (IOException e) {
+					System.out.println(e.getMessage());
+					System.out.println();
+					System.exit(0);
+				}
 
-				symbolsViews[i][j].setImage(Simulation.SYMBOLS
-						.get(k % Simulation.SYMBOLS.size()).image);
+				/* The resumed simulation should use the same settings. */
+				Util.prngType = Simulation.resumed.prngType;
+				Util.seed = Simulation.resumed.seed;
+				Util.PRNG = Util.prngType.streams(Util.seed, 1)[0];
+				Simulation.numberOfThreads = Simulation.resumed.workers.length;
+				numberOfSimulations = Simulation.resumed.numberOfSimulations;
 			}
 		}
 
-		/* Game indicators. */
-		TextField creditText = new TextField();
-		TextField totalBetText = new TextField();
-		TextField singleWinText = new TextField();
-		TextField totalWinText = new TextField();
-		creditText.setPrefWidth(80);
-		creditText.setMaxWidth(80);
-		totalBetText.setPrefWidth(80);
-		totalBetText.setMaxWidth(80);
-		singleWinText.setPrefWidth(80);
-		singleWinText.setMaxWidth(80);
-		totalWinText.setPrefWidth(80);
-		totalWinText.setMaxWidth(80);
-
-		/* Define series which will be visualized. */
-		XYChart.Series<Number, Number> loadSeries = new XYChart.Series<Number, Number>();
-		XYChart.Series<Number, Number> clearSeries = new XYChart.Series<Number, Number>();
-		XYChart.Series<Number, Number> balanceSeries = new XYChart.Series<Number, Number>();
-		XYChart.Series<Number, Number> zeroSeries = new XYChart.Series<Number, Number>();
-
-		/* Run single game. */
-		Button spinButton = new Button("SPIN");
-		spinButton.setOnAction(value -> {
-			/* Check for available balance. */
-			if (Simulation.totalBet > Simulation.credit) {
-				(new Alert(AlertType.INFORMATION, "Insufficient credit!"))
-						.show();
-				return;
-			}
-
-			Simulation.singleBaseGame();
-
-			/* Update financial information. */
-			creditText.setText("" + Simulation.credit);
-			totalBetText.setText("" + Simulation.totalBet);
-			singleWinText.setText("0");
-			totalWinText.setText("" + Simulation.totalWin);
+		/* Statistics export in Excel file. */
+		if (commands.hasOption("output") == true) {
+			Simulation.outputFile = commands.getOptionValue("output");
+		}
+		if (commands.hasOption("outputbalance") == true) {
+			Simulation.outputBalance = true;
+		}
+		if (commands.hasOption("balancefile") == true) {
+			Simulation.balanceFile = commands.getOptionValue("balancefile");
+		}
 
-			balanceSeries.getData().add(new XYChart.Data<Number, Number>(
-					Simulation.totalNumberOfGames, Simulation.credit));
-			zeroSeries.getData().add(new XYChart.Data<Number, Number>(
-					Simulation.totalNumberOfGames, 0));
+		/* Number of player sessions with bills loading. */
+		long numberOfSessions = 0L;
+		if (commands.hasOption("sessions") == true) {
+			try {
+				numberOfSessions = Long
+						.valueOf(commands.getOptionValue("sessions")
+								.replace("m", "000000").replace("k", "000"));
+			} catch (Exception e) {
+			}
 
-			/* Clear winning lines information. */
-			for (int i = 0; i < symbolsBorders.length; i++) {
-				for (int j = 0; j < symbolsBorders[i].length; j++) {
-					symbolsBorders[i][j].setStyle(
-							"-fx-border-color: black; -fx-border-width: 5;");
-				}
+			if (Simulation.coins.isEmpty() == true) {
+				System.out.println(
+						"Sessions simulation needs bills in the Bills Loading sheet.");
+				System.out.println();
+				System.exit(0);
 			}
+		}
 
-			/* Visualize symbols on the screen. */
-			for (int i = 0; i < Simulation.view.length; i++) {
-				for (int j = 0; j < Simulation.view[i].length; j++) {
-					if (Simulation.view[i][j] == Util.NO_SYMBOL) {
-						continue;
-					}
+		/* Evolutionary optimization of the reels. */
+		String optimizedFileName = null;
+		if (commands.hasOption("optimize") == true) {
+			optimizedFileName = commands.getOptionValue("optimize");
 
-					/* Find symbol by its index. */
-					for (Symbol symbol : Simulation.SYMBOLS) {
-						if (Simulation.view[i][j] == symbol) {
-							symbolsViews[i][j].setImage(symbol.image);
-						}
-					}
-				}
+			if (Simulation.bruteForce == true) {
+				System.out.println(
+						"Reels optimization plays random games and it can not be done by brute force.");
+				System.out.println();
+				System.exit(0);
 			}
-		});
-
-		creditText.setEditable(false);
-		totalBetText.setEditable(false);
-		singleWinText.setEditable(false);
-		totalWinText.setEditable(false);
-
-		/* Setup chart visual component. */
-		ScatterChart<Number, Number> creditChart;
-		LineChart<Number, Number> balanceChart;
-		NumberAxis xAxis;
-		NumberAxis yAxis;
-		creditChart = new ScatterChart<Number, Number>(xAxis = new NumberAxis(),
-				yAxis = new NumberAxis());
-		creditChart.setLegendVisible(false);
-		creditChart.setTitle("Game Balance");
-		creditChart.getData().add(loadSeries);
-		creditChart.getData().add(clearSeries);
-		balanceChart = new LineChart<Number, Number>(xAxis, yAxis);
-		balanceChart.setLegendVisible(false);
-		balanceChart.setTitle("Game Balance");
-		balanceChart.setCreateSymbols(false);
-		xAxis.setLabel("Number of Games");
-		yAxis.setLabel("Credit");
-		loadSeries.setName("Load Credit");
-		clearSeries.setName("Clear Credit");
-		balanceSeries.setName("Credit Balance");
-		zeroSeries.setName("Zero Level");
-		balanceChart.getData().add(balanceSeries);
-		balanceChart.getData().add(loadSeries);
-		balanceChart.getData().add(clearSeries);
-		balanceChart.getData().add(zeroSeries);
-		zeroSeries.getData().add(new XYChart.Data<Number, Number>(0, 0));
-
-		/* Adjust chart colors. */
-		creditChart.lookup(".chart-plot-background")
-				.setStyle("-fx-background-color: transparent");
-		balanceChart.lookup(".chart-plot-background")
-				.setStyle("-fx-background-color: transparent");
-		balanceChart.lookup(".default-color0.chart-series-line")
-				.setStyle("-fx-stroke: blue");
-		balanceChart.lookup(".default-color1.chart-series-line")
-				.setStyle("-fx-stroke: green");
-		balanceChart.lookup(".default-color2.chart-series-line")
-				.setStyle("-fx-stroke: red");
-		balanceChart.lookup(".default-color3.chart-series-line")
-				.setStyle("-fx-stroke: black");
-
-		/* Flag for game screen visibility. */
-		CheckBox gameScreenVisibility = new CheckBox("Show Game Screen");
-		gameScreenVisibility.setSelected(true);
-		gameScreenVisibility.selectedProperty()
-				.addListener(new ChangeListener<Boolean>() {
-					public void changed(
-							ObservableValue<? extends Boolean> observable,
-							Boolean before, Boolean after) {
-						screenGrid.setVisible(after);
-					}
-				});
-
-		/* Auto run setup. */
-		TextField autoRunText = new TextField();
-		autoRunText.setPrefWidth(80);
-		autoRunText.setMaxWidth(80);
-
-		/* Load credit setup. */
-		TextField loadCreditText = new TextField();
-		loadCreditText.setPrefWidth(80);
-		loadCreditText.setMaxWidth(80);
-
-		/* Limit value to number. */
-		autoRunText.setText("10");
-		autoRunText.textProperty().addListener((observable, before, after) -> {
-			if (after.matches("\\d*")) {
-				return;
+		}
+		if (commands.hasOption("targetrtp") == true) {
+			Simulation.targetRtp = Double
+					.valueOf(commands.getOptionValue("targetrtp")) / 100D;
+		}
+		if (commands.hasOption("targethitrate") == true) {
+			Optimizer.targetHitRate = Double
+					.valueOf(commands.getOptionValue("targethitrate")) / 100D;
+		}
+		if (commands.hasOption("targetdeviation") == true) {
+			Optimizer.targetDeviation = Double
+					.valueOf(commands.getOptionValue("targetdeviation"));
+		}
+		if (commands.hasOption("population") == true) {
+			try {
+				Optimizer.populationSize = Integer
+						.valueOf(commands.getOptionValue("population"));
+			} catch (Exception e) {
 			}
-
-			loadCreditText.setText(before.replaceAll("[^\\d]", ""));
-		});
-
-		/* Load credit action. */
-		Button autoRunButton = new Button("Auto Run");
-		autoRunButton.setOnAction(value -> {
-			/* Number of auto run games. */
-			int runs = Integer.valueOf(autoRunText.getText());
-
-			/* Play many games. */
-			for (int i = 0; i < runs
-					&& Simulation.credit > Simulation.totalBet; i++) {
-				Simulation.singleBaseGame();
-
-				/* Update financial information. */
-				creditText.setText("" + Simulation.credit);
-				totalBetText.setText("" + Simulation.totalBet);
-				singleWinText.setText("0");
-				totalWinText.setText("" + Simulation.totalWin);
-
-				balanceSeries.getData().add(new XYChart.Data<Number, Number>(
-						Simulation.totalNumberOfGames, Simulation.credit));
-				zeroSeries.getData().add(new XYChart.Data<Number, Number>(
-						Simulation.totalNumberOfGames, 0));
+		}
+		if (commands.hasOption("evolutions") == true) {
+			try {
+				Optimizer.numberOfEvolutions = Long
+						.valueOf(commands.getOptionValue("evolutions"));
+			} catch (Exception e) {
 			}
-		});
-
-		/* Limit value to number. */
-		loadCreditText.setText("1000");
-		loadCreditText.textProperty()
-				.addListener((observable, before, after) -> {
-					if (after.matches("\\d*")) {
-						return;
-					}
-
-					loadCreditText.setText(before.replaceAll("[^\\d]", ""));
-				});
-
-		/* Load credit action. */
-		Button loadCreditButton = new Button("Load Credit");
-		loadCreditButton.setOnAction(value -> {
-			loadSeries.getData().add(new XYChart.Data<Number, Number>(
-					Simulation.totalNumberOfGames + 1, 0));
-			loadSeries.getData().add(new XYChart.Data<Number, Number>(
-					Simulation.totalNumberOfGames + 1, Simulation.credit));
-
-			Simulation.credit += Integer.valueOf(loadCreditText.getText());
-			Simulation.balance.add(Simulation.credit);
-			creditText.setText("" + Simulation.credit);
-
-			loadSeries.getData().add(new XYChart.Data<Number, Number>(
-					Simulation.totalNumberOfGames + 1, Simulation.credit));
-			loadSeries.getData().add(new XYChart.Data<Number, Number>(
-					Simulation.totalNumberOfGames + 1, 0));
-
-			zeroSeries.getData().add(new XYChart.Data<Number, Number>(
-					Simulation.totalNumberOfGames + 1, 0));
-		});
-
-		/* Do bills loading simulation. */
-		Button simulateBillsButton = new Button("Simulate Bills");
-		simulateBillsButton.setOnAction(value -> {
-			creditText.setText("");
-			totalBetText.setText("");
-			singleWinText.setText("");
-			totalWinText.setText("");
-
-			for (int load : Simulation.coins) {
-				Simulation.credit += load;
-				Simulation.balance.add(Simulation.credit);
-
-				/* Play loaded bill. */
-				while (Simulation.credit > Simulation.totalBet) {
-					Simulation.singleBaseGame();
-					balanceSeries.getData()
-							.add(new XYChart.Data<Number, Number>(
-									Simulation.totalNumberOfGames,
-									Simulation.credit));
-				}
+		}
+		if (commands.hasOption("evaluation") == true) {
+			try {
+				Optimizer.evaluationGames = Long
+						.valueOf(commands.getOptionValue("evaluation")
+								.replace("m", "000000").replace("k", "000"));
+			} catch (Exception e) {
 			}
+		}
+		if (commands.hasOption("verification") == true) {
+			try {
+				Optimizer.verificationGames = Long
+						.valueOf(commands.getOptionValue("verification")
+								.replace("m", "000000").replace("k", "000"));
+			} catch (Exception e) {
+			}
+		}
 
-			Simulation.clear();
-		});
-
-		/* Load credit action. */
-		Button clearCreditButton = new Button("Clear Credit");
-		clearCreditButton.setOnAction(value -> {
-			clearSeries.getData().add(new XYChart.Data<Number, Number>(
-					Simulation.totalNumberOfGames - 1, 0));
-			clearSeries.getData().add(new XYChart.Data<Number, Number>(
-					Simulation.totalNumberOfGames - 1, Simulation.credit));
-
-			Simulation.credit = 0;
-			Simulation.balance.add(Simulation.credit);
-			creditText.setText("" + Simulation.credit);
-
-			clearSeries.getData().add(new XYChart.Data<Number, Number>(
-					Simulation.totalNumberOfGames - 1, Simulation.credit));
-			clearSeries.getData().add(new XYChart.Data<Number, Number>(
-					Simulation.totalNumberOfGames - 1, 0));
-
-			zeroSeries.getData().add(new XYChart.Data<Number, Number>(
-					Simulation.totalNumberOfGames - 1, 0));
-		});
-
-		Button clearChartButton = new Button("Clear Chart");
-		clearChartButton.setOnAction(value -> {
-			Simulation.totalNumberOfGames = 0;
-			Simulation.balance.clear();
-			balanceSeries.getData().clear();
-			loadSeries.getData().clear();
-			clearSeries.getData().clear();
-			zeroSeries.getData().clear();
-
-			zeroSeries.getData().add(new XYChart.Data<Number, Number>(0, 0));
-		});
-
-		/* Assemble visual controls layout. */
-		VBox vbox = new VBox(screenGrid,
-				new BorderPane(null, null, new HBox(new Label("Credit:"),
-						creditText, new Label("Total Bet:"), totalBetText,
-						new Label("Single Win:"), singleWinText,
-						new Label("Total Win:"), totalWinText, spinButton),
-						null, null),
-				new BorderPane(null, null, new HBox(/* gameScreenVisibility, */
-						autoRunButton, autoRunText, loadCreditButton,
-						loadCreditText, clearCreditButton,
-						simulateBillsButton /* ,clearChartButton */), null,
-						null));
-
-		/* Show statistics scene. */
-		Stage statistics = new Stage();
-		statistics.setTitle("Game Statistics");
-		statistics.setScene(
-				new Scene(new StackPane(/* creditChart, */ balanceChart)));
-		statistics.setX(0);
-		statistics.setY(0);
-		statistics.show();
-
-		/* Cascade close of windows. */
-		stage.setOnCloseRequest(event -> {
-			statistics.close();
-		});
-
-		/* Show main scene. */
-		stage.setScene(new Scene(vbox));
-		stage.setTitle(
-				"Fruit Machine Simulator with Excel Interface version 1.0.0 Copyrights (C) 2017-2020 Velbazhd Software LLC");
-		stage.setX(200);
-		stage.setY(200);
-		stage.show();
-
-		/* Loop over winning lines. */
-		(new Timer(true)).scheduleAtFixedRate(new TimerTask() {
-			private void showLine(int numberOfWinningLines) {
-				int show = -1;
-				int current = (int) ((System.currentTimeMillis() / 1000)
-						% numberOfWinningLines);
-				for (int l = 0, stop = -1; l < Simulation.LINES.size(); l++) {
-					/* If it is not a winning line do nothing. */
-					if (Simulation.winnerLines[l] == 0) {
-						continue;
-					}
-
-					/* Increment winning lines counter. */
-					stop++;
-
-					if (current == stop) {
-						show = l;
-						break;
-					}
-				}
+		/* Calculate all combinations in base game. */
+		if (Simulation.bruteForce == true) {
+			numberOfSimulations = Simulation.baseGameNumberOfCombinations();
+		}
 
-				/* Show the win from the current line. */
-				singleWinText.setText("" + Simulation.winnerLines[show]);
-
-				int red = Simulation.LINES.get(show).color.getRed();
-				int green = Simulation.LINES.get(show).color.getGreen();
-				int blue = Simulation.LINES.get(show).color.getBlue();
-				for (int i = 0; i < Simulation.winners.length; i++) {
-					int j = Simulation.LINES.get(show).positions[i];
-					symbolsBorders[i][j].setStyle("-fx-border-color: #"
-							+ String.format("%02X%02X%02X", red, green, blue)
-							+ "; -fx-border-width: 5;");
-				}
+		if (mode == Mode.SIMULATION) {
+			if (optimizedFileName != null) {
+				Optimizer.optimize(inputFileName, optimizedFileName,
+						baseReelsSheetName, freeReelsSheetName);
+				System.exit(0);
 			}
 
-			@Override
-			public void run() {
-				for (int i = 0; i < symbolsBorders.length; i++) {
-					for (int j = 0; j < symbolsBorders[i].length; j++) {
-						symbolsBorders[i][j].setStyle(
-								"-fx-border-color: black; -fx-border-width: 5;");
-					}
-				}
+			/* If exact calculation is not possible the game is simulated. */
+			if (Simulation.exact == true
+					&& ExactCalculator.calculate() != null) {
+				System.exit(0);
+			}
 
-				/* Count the number of winning lines. */
-				int counter = 0;
-				for (int l = 0; l < Simulation.LINES.size(); l++) {
-					if (Simulation.winnerLines[l] > 0) {
-						counter++;
-					}
-				}
+			if (numberOfSessions > 0) {
+				Sessions.simulate(numberOfSessions, progressPrintOnIteration);
+				System.exit(0);
+			}
 
-				/* Show one of winning lines. */
-				if (counter > 0) {
-					showLine(counter);
-				}
+			Simulation.simulate(numberOfSimulations, progressPrintOnIteration);
+			System.exit(0);
+		}
 
-				/* Show scatter win. */
-				for (int i = 0; i < Simulation.winners.length; i++) {
-					for (int j = 0; j < Simulation.winners[i].length; j++) {
-						if (Simulation.winners[i][j] == false) {
-							continue;
-						}
-
-						boolean isScatter = false;
-						for (Symbol scatter : Simulation.SCATTERS) {
-							if (Simulation.view[i][j] == scatter) {
-								isScatter = true;
-							}
-						}
-
-						if (isScatter == false) {
-							continue;
-						}
-
-						symbolsBorders[i][j].setStyle(
-								"-fx-border-color: white; -fx-border-width: 5;");
-					}
-				}
-			}
-		}, 1000l, 1000l);
+		if (mode == Mode.VISUALIZATION) {
+			Visualization.visualize(args);
+		}
 	}
 }
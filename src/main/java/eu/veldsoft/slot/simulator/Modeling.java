@@ -4,6 +4,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.apache.commons.math3.random.RandomAdaptor;
 
 /**
  * Game modeling logic.
@@ -12,9 +17,207 @@ import java.util.List;
  */
 class Modeling {
 
+	/** Number of random swaps for each group in the shuffling process. */
+	private static final long SWAPS = 20L;
+
 	/** Number of allowed stack repeats in the shuffling process. */
 	static int numberOfAllowedStackRepeats = 1;
 
+	/** Time limit in milliseconds for the random swaps of a single reel. */
+	static long timeLimit = 1_000L;
+
+	/**
+	 * Count neighboring groups with the same symbol. The first group is a
+	 * neighbor of the last one.
+	 * 
+	 * @param symbols
+	 *            Symbols of the groups.
+	 * @param lefts
+	 *            Indices of the left groups in the checked pairs.
+	 * @param size
+	 *            Number of the checked pairs.
+	 * 
+	 * @return Number of pairs with the same symbol.
+	 */
+	private static int repeats(int symbols[], int lefts[], int size) {
+		int counter = 0;
+
+		for (int k = 0; k < size; k++) {
+			if (symbols[lefts[k]] == symbols[(lefts[k] + 1)
+					% symbols.length]) {
+				counter++;
+			}
+		}
+
+		return counter;
+	}
+
+	/**
+	 * Swap two array elements.
+	 * 
+	 * @param array
+	 *            Array.
+	 * @param i
+	 *            First index.
+	 * @param j
+	 *            Second index.
+	 */
+	private static void swap(int array[], int i, int j) {
+		int value = array[i];
+		array[i] = array[j];
+		array[j] = value;
+	}
+
+	/**
+	 * Add index of the left group in a pair, if it is not added yet.
+	 * 
+	 * @param lefts
+	 *            Indices of the left groups in the pairs.
+	 * @param size
+	 *            Number of the pairs.
+	 * @param left
+	 *            Index to be added.
+	 * 
+	 * @return New number of the pairs.
+	 */
+	private static int pair(int lefts[], int size, int left) {
+		for (int k = 0; k < size; k++) {
+			if (lefts[k] == left) {
+				return size;
+			}
+		}
+
+		lefts[size] = left;
+		return size + 1;
+	}
+
+	/**
+	 * Arrange groups of symbols in a circle with limited number of
+	 * neighboring groups with the same symbol.
+	 * 
+	 * The groups of the most frequent symbol are taken as gaps and the other
+	 * groups are slotted in the gaps one by one, symbol by symbol. No symbol
+	 * has more groups than the gaps, so its groups go in different gaps and
+	 * the only repeats are the gaps which stay empty. It is the least
+	 * possible number of repeats. After that random swaps, which keep the
+	 * repeats in the limit, mix the groups.
+	 * 
+	 * @param groups
+	 *            Groups of symbols.
+	 * @param repeats
+	 *            Number of allowed repeats in neighboring groups.
+	 * @param reel
+	 *            Reel index used in the error message.
+	 * 
+	 * @return Arranged groups.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If the groups can not be arranged in the limit of repeats.
+	 */
+	static List<List<String>> arrange(List<List<String>> groups,
+			int repeats, int reel) {
+		Random random = new RandomAdaptor(Util.PRNG);
+
+		/* Groups by symbols in fixed order, so the seed gives the result. */
+		Map<String, List<List<String>>> symbols = new TreeMap<String, List<List<String>>>();
+		for (List<String> group : groups) {
+			symbols.computeIfAbsent(group.get(0),
+					key -> new ArrayList<List<String>>()).add(group);
+		}
+
+		/* Symbols with more groups go first, equal ones in random order. */
+		List<List<List<String>>> order = new ArrayList<List<List<String>>>(
+				symbols.values());
+		Collections.shuffle(order, random);
+		order.sort((a, b) -> b.size() - a.size());
+		for (List<List<String>> same : order) {
+			Collections.shuffle(same, random);
+		}
+
+		int size = groups.size();
+		int gaps = order.get(0).size();
+		int minimum = Math.max(0, 2 * gaps - size);
+		if (minimum > repeats) {
+			throw new IllegalArgumentException("Reel " + (reel + 1)
+					+ " has " + gaps + " of " + size + " groups with symbol "
+					+ order.get(0).get(0).get(0) + " and at least " + minimum
+					+ " neighboring groups repeat, but only " + repeats
+					+ " repeats are allowed.");
+		}
+
+		/* Slot the other groups in the gaps. */
+		List<List<List<String>>> slots = new ArrayList<List<List<String>>>();
+		for (List<String> group : order.get(0)) {
+			List<List<String>> slot = new ArrayList<List<String>>();
+			slot.add(group);
+			slots.add(slot);
+		}
+		int gap = random.nextInt(gaps);
+		for (List<List<String>> same : order.subList(1, order.size())) {
+			for (List<String> group : same) {
+				slots.get(gap).add(group);
+				gap = (gap + 1) % gaps;
+			}
+		}
+
+		/* Groups and their symbols as numbers for fast swapping. */
+		int k = 0;
+		int index[] = new int[size];
+		int symbol[] = new int[size];
+		List<List<String>> arranged = new ArrayList<List<String>>();
+		Map<String, Integer> numbers = new TreeMap<String, Integer>();
+		for (List<List<String>> slot : slots) {
+			for (List<String> group : slot) {
+				numbers.putIfAbsent(group.get(0), numbers.size());
+				index[k] = k;
+				symbol[k] = numbers.get(group.get(0));
+				arranged.add(group);
+				k++;
+			}
+		}
+
+		/* Mix by random swaps, which do not exceed the repeats. */
+		int counter = minimum;
+		int lefts[] = new int[4];
+		long deadline = System.nanoTime() + timeLimit * 1_000_000L;
+		for (long s = 0; s < SWAPS * size; s++) {
+			if ((s & 0x3FF) == 0 && System.nanoTime() > deadline) {
+				break;
+			}
+
+			int i = random.nextInt(size);
+			int j = random.nextInt(size);
+			if (symbol[i] == symbol[j]) {
+				continue;
+			}
+
+			/* Only the pairs around the swapped groups are changed. */
+			int pairs = 0;
+			pairs = pair(lefts, pairs, (i + size - 1) % size);
+			pairs = pair(lefts, pairs, i);
+			pairs = pair(lefts, pairs, (j + size - 1) % size);
+			pairs = pair(lefts, pairs, j);
+
+			int before = repeats(symbol, lefts, pairs);
+			swap(symbol, i, j);
+			int after = repeats(symbol, lefts, pairs);
+
+			if (counter - before + after > repeats) {
+				swap(symbol, i, j);
+			} else {
+				swap(index, i, j);
+				counter += after - before;
+			}
+		}
+
+		List<List<String>> result = new ArrayList<List<String>>();
+		for (int i : index) {
+			result.add(arranged.get(i));
+		}
+
+		return result;
+	}
+
 	/**
 	 * Shuffle loaded reals in stack of symbols.
 	 * 
@@ -25,6 +228,9 @@ class Modeling {
 	 *            regular shuffling.
 	 * @param repeats
 	 *            Number of allowed repeats in neighboring stacks.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If a reel can not be shuffled in the limit of repeats.
 	 */
 	static void shuffle(String[][] strips, int stackSize, int repeats) {
 		/*
@@ -42,10 +248,13 @@ class Modeling {
 			stackSize = 1;
 		}
 
-		System.err.print("Repeats by reels:\t");
-
 		/* Handle each reel by itself. */
 		for (int reel = 0; reel < strips.length; reel++) {
+			/* Empty strip can not be shuffled. */
+			if (strips[reel].length <= 0) {
+				continue;
+			}
+
 			/* Reel should be sorted first in order to form stacked groups. */
 			List<String> sortedReel = Arrays.asList(strips[reel]);
 			Collections.sort(sortedReel);
@@ -89,80 +298,15 @@ class Modeling {
 				}
 			}
 
-			/*
-			 * Do the real shuffling until there is no same groups next to each
-			 * other.
-			 */
-			int counter;
-			Collections.shuffle(stacks);
-			do {
-				/* Extra shuffle for the neighbors. */
-				for (int i = 0; i < stacks.size(); i++) {
-					int index1 = (i + 1) % stacks.size();
-					List<String> left = stacks.get(i);
-					List<String> right = stacks.get(index1);
-
-					/*
-					 * If first symbols in the groups are not equal there is
-					 * nothing to be done.
-					 */
-					if (left.get(0).equals(right.get(0)) == false) {
-						continue;
-					}
-
-					/*
-					 * Probabilistic try [size] times to find different stack.
-					 * It is probabilistic, because it is possible different
-					 * stacks not to exist. For example when the reel has only
-					 * one symbol in it.
-					 */
-					for (int j = 0; j < stacks.size(); j++) {
-						int index2 = Util.PRNG.nextInt(stacks.size());
-						List<String> random = stacks.get(index2);
-
-						/*
-						 * If both stacks are equal there is no reason to swap
-						 * them.
-						 */
-						if (random.get(0).equals(right.get(0)) == true) {
-							continue;
-						}
-
-						/* Swap stacks if they are different. */
-						Collections.swap(stacks, index1, index2);
-						break;
-					}
-				}
-
-				/* Check all groups which are next to each other. */
-				counter = 0;
-				for (int i = 0; i < stacks.size(); i++) {
-					List<String> left = stacks.get(i);
-					List<String> right = stacks.get((i + 1) % stacks.size());
-
-					/*
-					 * If first symbols in the groups are equal count it.
-					 */
-					if (left.get(0).equals(right.get(0)) == true) {
-						counter++;
-					}
-				}
-			} while (counter > repeats);
-			System.err.print(counter);
-			System.err.print("\t");
-
 			/* Put symbols back to the original reel. */
 			int position = 0;
-			for (List<String> group : stacks) {
+			for (List<String> group : arrange(stacks, repeats, reel)) {
 				for (String symbol : group) {
 					strips[reel][position] = symbol;
 					position++;
 				}
 			}
 		}
-
-		System.err.println();
-		System.err.println();
 	}
 
 	/**
@@ -170,8 +314,11 @@ class Modeling {
 	 * 
 	 * @param strips
 	 *            Symbol names as array.
+	 * @param repeats
+	 *            Number of allowed repeats in neighboring groups.
 	 * 
-	 * @param strips
+	 * @throws IllegalArgumentException
+	 *             If a reel can not be shuffled in the limit of repeats.
 	 */
 	static void shuffleByGroups(String[][] strips, int repeats) {
 		/* Handle each reel by itself. */
@@ -183,11 +330,10 @@ class Modeling {
 				continue;
 			}
 
-			/* Do shuffling. */ {
+			/* Form groups. */ {
 				String current = strips[reel][0];
 				List<String> group = new ArrayList<String>();
 
-				/* Form groups. */
 				for (String symbol : strips[reel]) {
 					if (current.equals(symbol) == false) {
 						groups.add(group);
@@ -198,32 +344,14 @@ class Modeling {
 					group.add(symbol);
 				}
 				groups.add(group);
-
-				/*
-				 * Shuffle groups by checking first and last symbol for
-				 * identity.
-				 */
-				int counter = 0;
-				do {
-					counter = 0;
-					Collections.shuffle(groups);
-
-					for (int i = 0; i < groups.size(); i++) {
-						if (groups.get(i).get(0).equals(groups
-								.get((i + 1) % groups.size()).get(0)) == true) {
-							counter++;
-						}
-					}
-				} while (counter > repeats);
 			}
 
 			/* Store shuffled strip. */
-			for (int i = 0; i < strips[reel].length;) {
-				for (List<String> group : groups) {
-					for (String symbol : group) {
-						strips[reel][i] = symbol;
-						i++;
-					}
+			int position = 0;
+			for (List<String> group : arrange(groups, repeats, reel)) {
+				for (String symbol : group) {
+					strips[reel][position] = symbol;
+					position++;
 				}
 			}
 		}
@@ -258,7 +386,7 @@ class Modeling {
 		System.out.println();
 
 		System.out.println("Paytable:");
-		for (int i = 0; i < Simulation.view.length + 1; i++) {
+		for (int i = 0; i < Simulation.numberOfReels + 1; i++) {
 			System.out.print("\t" + i + " of");
 		}
 		System.out.println();
@@ -273,7 +401,7 @@ class Modeling {
 
 		/* Visualize with stars and O letter. */
 		System.out.println("Lines:");
-		for (int j = 0; j < Simulation.view[0].length; j++) {
+		for (int j = 0; j < Simulation.numberOfRows; j++) {
 			for (int l = 0; l < Simulation.LINES.size(); l++) {
 				for (int i = 0; i < Simulation.LINES
 						.get(l).positions.length; i++) {
@@ -347,7 +475,7 @@ class Modeling {
 
 		System.out.println("Base Game Reels:");
 		/* Count symbols in reels. */ {
-			int[][] counters = new int[Simulation.view.length][Simulation.SYMBOLS
+			int[][] counters = new int[Simulation.numberOfReels][Simulation.SYMBOLS
 					.size()];
 			// TODO Counters should be initialized with zeros.
 			for (int i = 0; Simulation.baseReels != null
@@ -389,7 +517,7 @@ class Modeling {
 
 		System.out.println("Free Games Reels:");
 		/* Count symbols in reels. */ {
-			int[][] counters = new int[Simulation.view.length][Simulation.SYMBOLS
+			int[][] counters = new int[Simulation.numberOfReels][Simulation.SYMBOLS
 					.size()];
 			// TODO Counters should be initialized with zeros.
 			for (int i = 0; Simulation.freeReels != null
@@ -0,0 +1,192 @@
+package eu.veldsoft.slot.simulator;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Streaming statistical moments (mean, variance, skewness and kurtosis)
+ * calculated in a single pass with constant memory. Accumulators of different
+ * workers can be merged (P. Pebay, Formulas for Robust, One-Pass Parallel
+ * Computation of Covariances and Arbitrary-Order Statistical Moments, 2008).
+ * 
+ * @author Todor Balabanov
+ */
+final class Moments {
+	/** Number of values. */
+	private long count = 0L;
+
+	/** Mean of the values. */
+	private double mean = 0D;
+
+	/** Sum of the squared differences from the mean. */
+	private double m2 = 0D;
+
+	/** Sum of the cubed differences from the mean. */
+	private double m3 = 0D;
+
+	/** Sum of the differences from the mean on fourth power. */
+	private double m4 = 0D;
+
+	/**
+	 * Add single value.
+	 * 
+	 * @param value
+	 *            Value to add.
+	 */
+	void add(double value) {
+		long previous = count;
+		count++;
+
+		double n = count;
+		double delta = value - mean;
+		double deltaN = delta / n;
+		double deltaN2 = deltaN * deltaN;
+		double term = delta * deltaN * previous;
+
+		mean += deltaN;
+		m4 += term * deltaN2 * (n * n - 3 * n + 3) + 6 * deltaN2 * m2
+				- 4 * deltaN * m3;
+		m3 += term * deltaN * (n - 2) - 3 * deltaN * m2;
+		m2 += term;
+	}
+
+	/**
+	 * Merge moments of other values into this one.
+	 * 
+	 * @param other
+	 *            Moments to be added.
+	 */
+	void merge(Moments other) {
+		if (other.count == 0) {
+			return;
+		}
+		if (count == 0) {
+			count = other.count;
+			mean = other.mean;
+			m2 = other.m2;
+			m3 = other.m3;
+			m4 = other.m4;
+			return;
+		}
+
+		double a = count;
+		double b = other.count;
+		double n = a + b;
+		double delta = other.mean - mean;
+		double delta2 = delta * delta;
+		double delta3 = delta2 * delta;
+		double delta4 = delta2 * delta2;
+
+		double mean = this.mean + delta * b / n;
+		double m2 = this.m2 + other.m2 + delta2 * a * b / n;
+		double m3 = this.m3 + other.m3 + delta3 * a * b * (a - b) / (n * n)
+				+ 3 * delta * (a * other.m2 - b * this.m2) / n;
+		double m4 = this.m4 + other.m4
+				+ delta4 * a * b * (a * a - a * b + b * b) / (n * n * n)
+				+ 6 * delta2 * (a * a * other.m2 + b * b * this.m2) / (n * n)
+				+ 4 * delta * (a * other.m3 - b * this.m3) / n;
+
+		this.count += other.count;
+		this.mean = mean;
+		this.m2 = m2;
+		this.m3 = m3;
+		this.m4 = m4;
+	}
+
+	/**
+	 * Write the moments in binary form.
+	 * 
+	 * @param out
+	 *            Output to write to.
+	 * 
+	 * @throws IOException
+	 *             If the output fails.
+	 */
+	void write(DataOutput out) throws IOException {
+		out.writeLong(count);
+		out.writeDouble(mean);
+		out.writeDouble(m2);
+		out.writeDouble(m3);
+		out.writeDouble(m4);
+	}
+
+	/**
+	 * Read the moments written in binary form.
+	 * 
+	 * @param in
+	 *            Input to read from.
+	 * 
+	 * @throws IOException
+	 *             If the input fails.
+	 */
+	void read(DataInput in) throws IOException {
+		count = in.readLong();
+		mean = in.readDouble();
+		m2 = in.readDouble();
+		m3 = in.readDouble();
+		m4 = in.readDouble();
+	}
+
+	/**
+	 * Number of values.
+	 * 
+	 * @return Count of the added values.
+	 */
+	long count() {
+		return count;
+	}
+
+	/**
+	 * Mean of the values.
+	 * 
+	 * @return Mean or zero if there are no values.
+	 */
+	double mean() {
+		return mean;
+	}
+
+	/**
+	 * Population variance of the values.
+	 * 
+	 * @return Variance or zero if there are no values.
+	 */
+	double variance() {
+		return count != 0 ? m2 / count : 0D;
+	}
+
+	/**
+	 * Population standard deviation of the values.
+	 * 
+	 * @return Standard deviation or zero if there are no values.
+	 */
+	double standardDeviation() {
+		return Math.sqrt(variance());
+	}
+
+	/**
+	 * Population skewness of the values.
+	 * 
+	 * @return Skewness or zero if the values have no variance.
+	 */
+	double skewness() {
+		if (m2 == 0) {
+			return 0D;
+		}
+
+		return Math.sqrt(count) * m3 / Math.pow(m2, 1.5);
+	}
+
+	/**
+	 * Population excess kurtosis of the values.
+	 * 
+	 * @return Kurtosis or zero if the values have no variance.
+	 */
+	double kurtosis() {
+		if (m2 == 0) {
+			return 0D;
+		}
+
+		return count * m4 / (m2 * m2) - 3D;
+	}
+}
@@ -0,0 +1,269 @@
+package eu.veldsoft.slot.simulator;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Live view of a running simulation over JMX. The simulation publishes
+ * immutable snapshots of its statistics between the rounds, when the workers
+ * are not playing, so the readers never touch the counters of the workers.
+ *
+ * @author Todor Balabanov
+ */
+final class Monitor implements MonitorMBean {
+	/** Name of the managed bean. */
+	static final String NAME = "eu.veldsoft.slot.simulator:type=Simulation";
+
+	/**
+	 * Statistics at some moment of the simulation.
+	 */
+	private static final class Snapshot {
+		/** Number of played base games. */
+		final long games;
+
+		/** Number of base games to be played. */
+		final long total;
+
+		/** Total return to player. */
+		final double rtp;
+
+		/** Return to player of the base game. */
+		final double baseRtp;
+
+		/** Return to player of the free games. */
+		final double freeRtp;
+
+		/** Hit frequency of the base game. */
+		final double baseHitRate;
+
+		/** Hit frequency of the free games. */
+		final double freeHitRate;
+
+		/** Max win in single base game. */
+		final long baseMaxWin;
+
+		/** Max win in single free game. */
+		final long freeMaxWin;
+
+		/** Base games per second. */
+		final double speed;
+
+		/** Time of the snapshot in nanoseconds. */
+		final long time;
+
+		/**
+		 * Summarize the statistics of all contexts.
+		 *
+		 * @param total
+		 *            Number of base games to be played.
+		 * @param contexts
+		 *            Simulation contexts.
+		 * @param previous
+		 *            Previous snapshot or null.
+		 */
+		Snapshot(long total, Simulation contexts[], Snapshot previous) {
+			long games = 0L;
+			long freeGames = 0L;
+			long won = 0L;
+			long lost = 0L;
+			long base = 0L;
+			long free = 0L;
+			long baseHits = 0L;
+			long freeHits = 0L;
+			long baseMax = 0L;
+			long freeMax = 0L;
+			for (Simulation context : contexts) {
+				games += context.totalNumberOfGames;
+				freeGames += context.totalNumberOfFreeGames;
+				won += context.wonMoney;
+				lost += context.lostMoney;
+				base += context.baseMoney;
+				free += context.freeMoney;
+				baseHits += context.baseGameHitRate;
+				freeHits += context.freeGamesHitRate;
+				baseMax = Math.max(baseMax, context.baseMaxWin);
+				freeMax = Math.max(freeMax, context.freeMaxWin);
+			}
+
+			this.games = games;
+			this.total = total;
+			this.rtp = (double) won / lost;
+			this.baseRtp = (double) base / lost;
+			this.freeRtp = (double) free / lost;
+			this.baseHitRate = (double) baseHits / games;
+			this.freeHitRate = (double) freeHits / freeGames;
+			this.baseMaxWin = baseMax;
+			this.freeMaxWin = freeMax;
+			this.time = System.nanoTime();
+
+			if (previous != null && time > previous.time) {
+				this.speed = 1E9D * (games - previous.games)
+						/ (time - previous.time);
+			} else {
+				this.speed = 0D;
+			}
+		}
+	}
+
+	/** The last published snapshot. */
+	private volatile Snapshot snapshot = null;
+
+	/** Stop request flag. */
+	private volatile boolean stopped = false;
+
+	/**
+	 * Create monitor and register it in the platform MBean server.
+	 *
+	 * @return The registered monitor or null if the registration fails.
+	 */
+	static Monitor register() {
+		Monitor result = new Monitor();
+
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(result,
+					new ObjectName(NAME));
+		} catch (JMException e) {
+			System.err.println(e);
+			return null;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Publish new snapshot. It should be called when the contexts are not
+	 * playing.
+	 *
+	 * @param total
+	 *            Number of base games to be played.
+	 * @param contexts
+	 *            Simulation contexts.
+	 */
+	void publish(long total, Simulation... contexts) {
+		snapshot = new Snapshot(total, contexts, snapshot);
+	}
+
+	/**
+	 * Check for stop request.
+	 *
+	 * @return True if the simulation should be stopped.
+	 */
+	boolean stopped() {
+		return stopped;
+	}
+
+	/**
+	 * The last snapshot or empty one if nothing is published yet.
+	 *
+	 * @return Snapshot.
+	 */
+	private Snapshot current() {
+		Snapshot result = snapshot;
+
+		if (result == null) {
+			result = new Snapshot(0L, new Simulation[0], null);
+		}
+
+		return result;
+	}
+
+	@Override
+	public long getGames() {
+		return current().games;
+	}
+
+	@Override
+	public long getTotalGames() {
+		return current().total;
+	}
+
+	@Override
+	public double getRtp() {
+		return current().rtp;
+	}
+
+	@Override
+	public double getBaseRtp() {
+		return current().baseRtp;
+	}
+
+	@Override
+	public double getFreeRtp() {
+		return current().freeRtp;
+	}
+
+	@Override
+	public double getBaseHitRate() {
+		return current().baseHitRate;
+	}
+
+	@Override
+	public double getFreeHitRate() {
+		return current().freeHitRate;
+	}
+
+	@Override
+	public long getBaseMaxWin() {
+		return current().baseMaxWin;
+	}
+
+	@Override
+	public long getFreeMaxWin() {
+		return current().freeMaxWin;
+	}
+
+	@Override
+	public double getGamesPerSecond() {
+		return current().speed;
+	}
+
+	@Override
+	public long getEta() {
+		Snapshot current = current();
+
+		if (current.speed <= 0) {
+			return -1L;
+		}
+
+		return (long) ((current.total - current.games) / current.speed);
+	}
+
+	@Override
+	public String snapshot() {
+		Snapshot current = current();
+		long eta = getEta();
+
+		return "Games:\t" + current.games + " of " + current.total + "\n"
+				+ "Total RTP:\t" + current.rtp + "\n" + "Base Game RTP:\t"
+				+ current.baseRtp + "\n" + "Free Game RTP:\t"
+				+ current.freeRtp + "\n" + "Hit Frequency in Base Game:\t"
+				+ current.baseHitRate + "\n" + "Hit Frequency in Free Game:\t"
+				+ current.freeHitRate + "\n" + "Max Win in Base Game:\t"
+				+ current.baseMaxWin + "\n" + "Max Win in Free Game:\t"
+				+ current.freeMaxWin + "\n" + "Games per Second:\t"
+				+ current.speed + "\n" + "ETA:\t"
+				+ (eta < 0 ? "unknown"
+						: String.format("%d:%02d:%02d", eta / 3600L,
+								eta / 60L % 60L, eta % 60L))
+				+ "\n";
+	}
+
+	@Override
+	public String stopAndCheckpoint() {
+		if (Simulation.bruteForce == true) {
+			stopped = true;
+			return "Brute force is stopped without checkpoint.";
+		}
+
+		/* The flag is written last in order the file name to be visible. */
+		String result = Simulation.checkpointFile;
+		if (result == null) {
+			result = Simulation.checkpointFile = Checkpoint.DEFAULT_FILE;
+		}
+		stopped = true;
+
+		return result;
+	}
+}
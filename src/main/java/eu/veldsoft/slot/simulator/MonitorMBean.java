@@ -0,0 +1,101 @@
+package eu.veldsoft.slot.simulator;
+
+/**
+ * Management interface of a running simulation. The interface should be
+ * public in order to be accepted as standard MBean.
+ *
+ * @author Todor Balabanov
+ */
+public interface MonitorMBean {
+	/**
+	 * Number of played base games.
+	 *
+	 * @return Base games.
+	 */
+	long getGames();
+
+	/**
+	 * Number of base games to be played.
+	 *
+	 * @return Total base games.
+	 */
+	long getTotalGames();
+
+	/**
+	 * Total return to player.
+	 *
+	 * @return Total RTP.
+	 */
+	double getRtp();
+
+	/**
+	 * Return to player of the base game.
+	 *
+	 * @return Base game RTP.
+	 */
+	double getBaseRtp();
+
+	/**
+	 * Return to player of the free games.
+	 *
+	 * @return Free games RTP.
+	 */
+	double getFreeRtp();
+
+	/**
+	 * Hit frequency of the base game.
+	 *
+	 * @return Base game hit rate.
+	 */
+	double getBaseHitRate();
+
+	/**
+	 * Hit frequency of the free games.
+	 *
+	 * @return Free games hit rate.
+	 */
+	double getFreeHitRate();
+
+	/**
+	 * Max win in single base game.
+	 *
+	 * @return Base game max win.
+	 */
+	long getBaseMaxWin();
+
+	/**
+	 * Max win in single free game.
+	 *
+	 * @return Free game max win.
+	 */
+	long getFreeMaxWin();
+
+	/**
+	 * Base games played per second since the previous update.
+	 *
+	 * @return Games per second.
+	 */
+	double getGamesPerSecond();
+
+	/**
+	 * Estimated time to the end of the simulation.
+	 *
+	 * @return Time in seconds.
+	 */
+	long getEta();
+
+	/**
+	 * Report of all attributes.
+	 *
+	 * @return Text report.
+	 */
+	String snapshot();
+
+	/**
+	 * Stop the simulation at the end of the current round and store its
+	 * state in the checkpoint file.
+	 *
+	 * @return Name of the checkpoint file.
+	 */
+	String stopAndCheckpoint();
+}
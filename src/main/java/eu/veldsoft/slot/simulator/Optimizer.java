@@ -0,0 +1,628 @@
+package eu.veldsoft.slot.simulator;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.WorkbookUtil;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+/**
+ * Evolutionary optimization of the reels strips. A population of base game
+ * and free spins reels is evolved to the target RTP, hit frequency and
+ * standard deviation of the game win. Children are made by taking each reel
+ * from one of two parents and by mutations, which swap symbols on a reel
+ * (order) or replace a symbol by other symbol of the same reel (counts), so
+ * the reels keep their length and only the symbols designed for a reel are
+ * used on it.
+ *
+ * Candidates are evaluated in parallel by short runs of random games. All
+ * candidates play the same random stream, so the differences between them
+ * are not hidden by the noise of the short runs and the scores of different
+ * evolutions can be compared. When the base game can be calculated exactly,
+ * its RTP (and the hit frequency when it is a target) is calculated instead
+ * of simulated. The best candidates are checked again by a long run with
+ * other random stream and the best of them is written only if it is better
+ * than the loaded reels.
+ *
+ * @author Todor Balabanov
+ */
+final class Optimizer {
+	/** Number of the best candidates which are kept in the next evolution. */
+	private static final int ELITE = 2;
+
+	/** Max number of mutations in a single child. */
+	private static final int MUTATIONS = 3;
+
+	/** Target hit frequency of the base game or NaN if it is not a target. */
+	static double targetHitRate = Double.NaN;
+
+	/**
+	 * Target standard deviation of the game win as a multiple of the total
+	 * bet or NaN if it is not a target.
+	 */
+	static double targetDeviation = Double.NaN;
+
+	/** Number of candidates in the population. */
+	static int populationSize = 20;
+
+	/** Number of evolutions. */
+	static long numberOfEvolutions = 50L;
+
+	/** Number of base games played for evaluation of a single candidate. */
+	static long evaluationGames = 100_000L;
+
+	/** Number of base games played for the check of the best candidates. */
+	static long verificationGames = 2_000_000L;
+
+	/** Exact calculation of the base game is possible. */
+	private static boolean calculable = false;
+
+	/**
+	 * Reels strips with their evaluation.
+	 */
+	private static final class Candidate {
+		/** Base game reels as symbols codes. */
+		final int base[][];
+
+		/** Free spins reels as symbols codes. */
+		final int free[][];
+
+		/** Return to player. */
+		double rtp = 0D;
+
+		/** Hit frequency of the base game. */
+		double hitRate = 0D;
+
+		/** Standard deviation of the game win in total bets. */
+		double deviation = 0D;
+
+		/** Relative distance to the targets. */
+		double error = Double.POSITIVE_INFINITY;
+
+		/** Evaluation flag. */
+		boolean evaluated = false;
+
+		/**
+		 * Deep copy constructor.
+		 *
+		 * @param base
+		 *            Base game reels.
+		 * @param free
+		 *            Free spins reels.
+		 */
+		Candidate(int base[][], int free[][]) {
+			this.base = new int[base.length][];
+			for (int i = 0; i < base.length; i++) {
+				this.base[i] = base[i].clone();
+			}
+
+			this.free = new int[free.length][];
+			for (int i = 0; i < free.length; i++) {
+				this.free[i] = free[i].clone();
+			}
+		}
+	}
+
+	/** Allowed symbols on each base game reel. */
+	private static int baseSymbols[][] = {};
+
+	/** Allowed symbols on each free spins reel. */
+	private static int freeSymbols[][] = {};
+
+	/**
+	 * Distinct symbols on each reel.
+	 *
+	 * @param reels
+	 *            Reels as symbols codes.
+	 *
+	 * @return Distinct symbols codes of each reel.
+	 */
+	private static int[][] symbols(int reels[][]) {
+		int result[][] = new int[reels.length][];
+
+		for (int i = 0; i < reels.length; i++) {
+			result[i] = Arrays.stream(reels[i]).distinct().toArray();
+		}
+
+		return result;
+	}
+
+	/**
+	 * Relative distance of a value to its target.
+	 *
+	 * @param value
+	 *            Evaluated value.
+	 * @param target
+	 *            Target value or NaN if there is no target.
+	 *
+	 * @return Distance.
+	 */
+	private static double distance(double value, double target) {
+		if (Double.isNaN(target) == true || target == 0) {
+			return 0D;
+		}
+
+		return Math.abs(value - target) / target;
+	}
+
+	/**
+	 * Evaluate candidate by random games. The base game RTP is calculated
+	 * exactly if it is possible and so is the hit frequency, if it is a
+	 * target.
+	 *
+	 * @param candidate
+	 *            Reels to be evaluated.
+	 * @param seed
+	 *            Seed of the random stream.
+	 * @param games
+	 *            Number of base games.
+	 */
+	private static void evaluate(Candidate candidate, long seed, long games) {
+		Simulation game = new Simulation();
+		game.reels(candidate.base, candidate.free);
+		game.prng = Util.prngType.streams(seed, 1)[0];
+
+		for (long g = 0; g < games; g++) {
+			game.singleBaseGame();
+		}
+
+		double lost = game.lostMoney;
+		candidate.rtp = game.wonMoney / lost;
+		candidate.hitRate = (double) game.baseGameHitRate
+				/ game.totalNumberOfGames;
+		candidate.deviation = game.gameOutcomes.standardDeviation()
+				/ Simulation.totalBet;
+
+		/* Only the wins out of the base game are left simulated. */
+		if (calculable == true) {
+			try {
+				boolean frequency = Double.isNaN(targetHitRate) == false;
+				Simulation exact = ExactCalculator.calculate(candidate.base,
+						frequency);
+				candidate.rtp = (double) exact.baseMoney / exact.lostMoney
+						+ (game.wonMoney - game.baseMoney) / lost;
+				if (frequency == true) {
+					candidate.hitRate = (double) exact.baseGameHitRate
+							/ exact.totalNumberOfGames;
+				}
+			} catch (IllegalArgumentException e) {
+			}
+		}
+
+		candidate.error = distance(candidate.rtp, Simulation.targetRtp)
+				+ distance(candidate.hitRate, targetHitRate)
+				+ distance(candidate.deviation, targetDeviation);
+		candidate.evaluated = true;
+	}
+
+	/**
+	 * Evaluate candidates in parallel.
+	 *
+	 * @param pool
+	 *            Threads of the evaluations.
+	 * @param candidates
+	 *            Candidates to be evaluated.
+	 * @param seed
+	 *            Seed of the random stream.
+	 * @param games
+	 *            Number of base games for each candidate.
+	 *
+	 * @throws InterruptedException
+	 *             If the evaluations are interrupted.
+	 * @throws ExecutionException
+	 *             If an evaluation fails.
+	 */
+	private static void evaluate(ExecutorService pool,
+			List<Candidate> candidates, long seed, long games)
+			throws InterruptedException, ExecutionException {
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		for (Candidate candidate : candidates) {
+			futures.add(
+					pool.submit(() -> evaluate(candidate, seed, games)));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+	}
+
+	/**
+	 * Select the better of two random candidates.
+	 *
+	 * @param population
+	 *            Evaluated candidates.
+	 *
+	 * @return Selected candidate.
+	 */
+	private static Candidate tournament(Candidate population[]) {
+		Candidate first = population[Util.PRNG.nextInt(population.length)];
+		Candidate second = population[Util.PRNG.nextInt(population.length)];
+
+		return first.error <= second.error ? first : second;
+	}
+
+	/**
+	 * Make a child with each reel taken from one of the parents.
+	 *
+	 * @param mother
+	 *            First parent.
+	 * @param father
+	 *            Second parent.
+	 *
+	 * @return Child candidate.
+	 */
+	private static Candidate crossover(Candidate mother, Candidate father) {
+		Candidate child = new Candidate(mother.base, mother.free);
+
+		for (int i = 0; i < child.base.length; i++) {
+			if (Util.PRNG.nextBoolean() == true) {
+				child.base[i] = father.base[i].clone();
+			}
+		}
+		for (int i = 0; i < child.free.length; i++) {
+			if (Util.PRNG.nextBoolean() == true) {
+				child.free[i] = father.free[i].clone();
+			}
+		}
+
+		return child;
+	}
+
+	/**
+	 * Swap two symbols or replace a symbol on a random reel.
+	 *
+	 * @param reels
+	 *            Reels to be changed.
+	 * @param allowed
+	 *            Allowed symbols on each reel.
+	 */
+	private static void mutate(int reels[][], int allowed[][]) {
+		int i = Util.PRNG.nextInt(reels.length);
+		if (reels[i].length == 0) {
+			return;
+		}
+
+		int j = Util.PRNG.nextInt(reels[i].length);
+		if (Util.PRNG.nextBoolean() == true) {
+			int k = Util.PRNG.nextInt(reels[i].length);
+			int symbol = reels[i][j];
+			reels[i][j] = reels[i][k];
+			reels[i][k] = symbol;
+		} else {
+			reels[i][j] = allowed[i][Util.PRNG.nextInt(allowed[i].length)];
+		}
+	}
+
+	/**
+	 * Apply random number of mutations to a candidate.
+	 *
+	 * @param candidate
+	 *            Candidate to be changed.
+	 */
+	private static void mutate(Candidate candidate) {
+		for (int m = 1 + Util.PRNG.nextInt(MUTATIONS); m > 0; m--) {
+			if (candidate.free.length > 0 && Simulation.freeOff == false
+					&& Util.PRNG.nextBoolean() == true) {
+				mutate(candidate.free, freeSymbols);
+			} else if (candidate.base.length > 0) {
+				mutate(candidate.base, baseSymbols);
+			}
+		}
+	}
+
+	/**
+	 * Transform reels of symbols codes to reels of symbols names.
+	 *
+	 * @param reels
+	 *            Reels as symbols codes.
+	 *
+	 * @return Reels as symbols names.
+	 */
+	private static String[][] names(int reels[][]) {
+		String result[][] = new String[reels.length][];
+
+		for (int i = 0; i < reels.length; i++) {
+			result[i] = new String[reels[i].length];
+			for (int j = 0; j < reels[i].length; j++) {
+				result[i][j] = Simulation.symbols[reels[i][j]].name;
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Write reels in a sheet. Each reel is a column, as the reels are loaded.
+	 * If there is a sheet with the same name it is replaced.
+	 *
+	 * @param workbook
+	 *            Workbook.
+	 * @param name
+	 *            Sheet name.
+	 * @param strips
+	 *            Reels as symbols names.
+	 *
+	 * @return Name of the written sheet.
+	 */
+	private static String sheet(XSSFWorkbook workbook, String name,
+			String strips[][]) {
+		name = WorkbookUtil.createSafeSheetName(name);
+		if (workbook.getSheetIndex(name) >= 0) {
+			workbook.removeSheetAt(workbook.getSheetIndex(name));
+		}
+		Sheet sheet = workbook.createSheet(name);
+
+		for (int i = 0; i < strips.length; i++) {
+			for (int j = 0; j < strips[i].length; j++) {
+				Row row = sheet.getRow(j);
+				if (row == null) {
+					row = sheet.createRow(j);
+				}
+				row.createCell(i).setCellValue(strips[i][j]);
+			}
+		}
+
+		return name;
+	}
+
+	/**
+	 * Write copy of the input workbook with the optimized reels as new
+	 * sheets, so the output can be used as an input with the new sheets.
+	 *
+	 * @param input
+	 *            Input workbook file name.
+	 * @param output
+	 *            Output workbook file name.
+	 * @param base
+	 *            Base game reels sheet name.
+	 * @param free
+	 *            Free spins reels sheet name.
+	 *
+	 * @return Names of the written base game and free spins sheets.
+	 *
+	 * @throws IOException
+	 *             If the workbook can not be read or written.
+	 */
+	private static String[] write(String input, String output, String base,
+			String free) throws IOException {
+		String names[] = new String[2];
+
+		XSSFWorkbook workbook = null;
+		try (InputStream in = new FileInputStream(input)) {
+			workbook = new XSSFWorkbook(in);
+		}
+
+		try (OutputStream out = new FileOutputStream(output)) {
+			names[0] = sheet(workbook, base + " Optimized",
+					Simulation.baseStrips);
+			names[1] = sheet(workbook, free + " Optimized",
+					Simulation.freeStrips);
+			workbook.write(out);
+		} finally {
+			workbook.close();
+		}
+
+		return names;
+	}
+
+	/**
+	 * Print error, RTP, hit frequency and deviation of a candidate.
+	 *
+	 * @param candidate
+	 *            Evaluated candidate.
+	 */
+	private static void print(Candidate candidate) {
+		System.out.print(String.format("%.6f", candidate.error));
+		System.out.print("\t");
+		System.out.print(String.format("%6.2f", 100D * candidate.rtp));
+		System.out.print("\t");
+		System.out.print(String.format("%6.2f", 100D * candidate.hitRate));
+		System.out.print("\t");
+		System.out.print(String.format("%.4f", candidate.deviation));
+	}
+
+	/**
+	 * Print progress report line of an evolution.
+	 *
+	 * @param evolution
+	 *            Evolution index.
+	 * @param best
+	 *            Best candidate so far.
+	 * @param evaluations
+	 *            Number of evaluations in the evolution.
+	 * @param time
+	 *            Time of the evaluations in nanoseconds.
+	 */
+	private static void printProgress(long evolution, Candidate best,
+			int evaluations, long time) {
+		double seconds = Math.max(time, 1L) / 1_000_000_000D;
+
+		System.out.print(evolution);
+		System.out.print("\t");
+		print(best);
+		System.out.print("\t");
+		System.out.print(String.format("%.2f", evaluations / seconds));
+		System.out.print("\t");
+		System.out.print(String.format("%.0f",
+				evaluations * evaluationGames / seconds));
+		System.out.println();
+	}
+
+	/**
+	 * Evolve the loaded reels, check the best reels by a long run and if they
+	 * are better than the loaded reels print them and write them in a copy of
+	 * the input workbook.
+	 *
+	 * @param input
+	 *            Input workbook file name.
+	 * @param output
+	 *            Output workbook file name.
+	 * @param base
+	 *            Base game reels sheet name.
+	 * @param free
+	 *            Free spins reels sheet name.
+	 */
+	static void optimize(String input, String output, String base,
+			String free) {
+		int threads = Math.max(1, Simulation.numberOfThreads);
+		int size = Math.max(ELITE + 1, populationSize);
+
+		baseSymbols = symbols(Simulation.baseCodes);
+		freeSymbols = symbols(Simulation.freeCodes);
+
+		/* The exact calculation does not depend on the order of symbols. */
+		try {
+			calculable = ExactCalculator.calculate(Simulation.baseCodes,
+					Double.isNaN(targetHitRate) == false) != null;
+		} catch (IllegalArgumentException e) {
+			calculable = false;
+		}
+
+		/* The loaded reels and their mutants are the first population. */
+		Candidate loaded = new Candidate(Simulation.baseCodes,
+				Simulation.freeCodes);
+		Candidate population[] = new Candidate[size];
+		for (int c = 0; c < population.length; c++) {
+			population[c] = new Candidate(loaded.base, loaded.free);
+			if (c > 0) {
+				mutate(population[c]);
+			}
+		}
+
+		System.out.println("PRNG:\t" + Util.prngType + "\t" + Util.seed);
+		System.out.println("Target RTP:\t" + Simulation.targetRtp);
+		System.out.println("Target Hit Frequency:\t" + targetHitRate);
+		System.out.println("Target Standard Deviation:\t" + targetDeviation);
+		System.out.println("Exact Base Game:\t" + calculable);
+		System.out.println();
+		System.out.println(
+				"Evolution\tError\tRTP\tHit Rate\tDeviation\tEvaluations/s\tGames/s");
+
+		long evaluations = 0L;
+		long start = System.nanoTime();
+		Candidate best = population[0];
+		List<Candidate> finalists = new ArrayList<Candidate>();
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			for (long e = 0; e < numberOfEvolutions; e++) {
+				long begin = System.nanoTime();
+
+				/* The elites keep their scores from the previous evolution. */
+				List<Candidate> candidates = new ArrayList<Candidate>();
+				for (Candidate candidate : population) {
+					if (candidate.evaluated == false) {
+						candidates.add(candidate);
+					}
+				}
+				evaluate(pool, candidates, Util.seed, evaluationGames);
+				evaluations += candidates.size();
+
+				Arrays.sort(population,
+						Comparator.comparingDouble(c -> c.error));
+				if (population[0].error < best.error) {
+					best = population[0];
+				}
+				printProgress(e, best, candidates.size(),
+						System.nanoTime() - begin);
+
+				/* The last evolution is not followed by a next one. */
+				if (e == numberOfEvolutions - 1) {
+					break;
+				}
+
+				Candidate next[] = new Candidate[population.length];
+				for (int c = 0; c < ELITE; c++) {
+					next[c] = population[c];
+				}
+				for (int c = ELITE; c < next.length; c++) {
+					next[c] = crossover(tournament(population),
+							tournament(population));
+					mutate(next[c]);
+				}
+				population = next;
+			}
+
+			double seconds = Math.max(System.nanoTime() - start, 1L)
+					/ 1_000_000_000D;
+			System.out.println();
+			System.out.println("Evaluations:\t" + evaluations);
+			System.out.println(
+					"Evaluations per Second:\t" + evaluations / seconds);
+			System.out.println("Games per Second:\t"
+					+ evaluations * evaluationGames / seconds);
+			System.out.println();
+
+			/*
+			 * The scores of the short runs are biased by the selection, so
+			 * the loaded reels, the best reels and the elites are checked by
+			 * a long run with other random stream.
+			 */
+			finalists.add(new Candidate(loaded.base, loaded.free));
+			finalists.add(new Candidate(best.base, best.free));
+			for (int c = 0; c < ELITE && c < population.length; c++) {
+				if (population[c] != best) {
+					finalists.add(new Candidate(population[c].base,
+							population[c].free));
+				}
+			}
+			evaluate(pool, finalists, Util.seed + 1, verificationGames);
+		} catch (InterruptedException | ExecutionException e) {
+			System.err.println(e);
+			System.exit(1);
+		} finally {
+			pool.shutdown();
+		}
+
+		Candidate optimized = finalists.get(1);
+		for (Candidate candidate : finalists.subList(1, finalists.size())) {
+			if (candidate.error < optimized.error) {
+				optimized = candidate;
+			}
+		}
+
+		System.out.println("Check with " + verificationGames + " games:");
+		System.out.println("Reels\tError\tRTP\tHit Rate\tDeviation");
+		System.out.print("Loaded\t");
+		print(finalists.get(0));
+		System.out.println();
+		System.out.print("Optimized\t");
+		print(optimized);
+		System.out.println();
+		System.out.println();
+
+		if (optimized.error >= finalists.get(0).error) {
+			System.out.println(
+					"Optimized reels are not better than the loaded reels and they are not written.");
+			System.out.println();
+			return;
+		}
+
+		/* The best reels become the loaded reels. */
+		Simulation.baseStrips = names(optimized.base);
+		Simulation.freeStrips = names(optimized.free);
+		Simulation.initialize();
+		Modeling.printDataStructures();
+
+		try {
+			String sheets[] = write(input, output, base, free);
+			System.out.println("Optimized reels are written in " + output
+					+ " as sheets " + sheets[0] + " and " + sheets[1] + ".");
+		} catch (IOException e) {
+			System.out.println("Output file " + output + " is not usable!");
+			System.err.println(e);
+		}
+		System.out.println();
+	}
+}
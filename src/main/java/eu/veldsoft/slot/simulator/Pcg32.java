@@ -0,0 +1,61 @@
+package eu.veldsoft.slot.simulator;
+
+/**
+ * PCG32 generator (M. O'Neill, PCG: A Family of Simple Fast Space-Efficient
+ * Statistically Good Algorithms for Random Number Generation, 2014). Each odd
+ * increment selects a different stream.
+ * 
+ * @author Todor Balabanov
+ */
+final class Pcg32 extends StreamGenerator {
+	/** Serial version for the checkpoints. */
+	private static final long serialVersionUID = 1L;
+
+	/** Linear congruential multiplier. */
+	private static final long MULTIPLIER = 6364136223846793005L;
+
+	/** Internal state. */
+	private long state;
+
+	/** Stream selector. It is always odd. */
+	private long increment;
+
+	/**
+	 * Constructor with a seed and a stream.
+	 * 
+	 * @param seed
+	 *            Initial state.
+	 * @param stream
+	 *            Stream selector. Only its lower 63 bits are used.
+	 */
+	Pcg32(long seed, long stream) {
+		increment = (stream << 1) | 1L;
+		setSeed(seed);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int nextInt() {
+		long old = state;
+		state = old * MULTIPLIER + increment;
+
+		int shifted = (int) (((old >>> 18) ^ old) >>> 27);
+		int rotation = (int) (old >>> 59);
+
+		return Integer.rotateRight(shifted, rotation);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setSeed(long seed) {
+		state = 0L;
+		nextInt();
+		state += seed;
+		nextInt();
+		clear();
+	}
+}
@@ -0,0 +1,72 @@
+package eu.veldsoft.slot.simulator;
+
+import org.apache.commons.math3.random.MersenneTwister;
+import org.apache.commons.math3.random.RandomGenerator;
+
+/**
+ * Available pseudo-random number generators and the way independent streams
+ * are created from a single seed.
+ * 
+ * @author Todor Balabanov
+ */
+enum Prng {
+	/** Mersenne Twister with seeds derived by SplitMix64. */
+	MERSENNE,
+
+	/** SplitMix64 with split increments. */
+	SPLITMIX,
+
+	/** Xoroshiro128** with streams 2^64 steps apart. */
+	XOROSHIRO,
+
+	/** PCG32 with states and stream selectors derived by SplitMix64. */
+	PCG;
+
+	/**
+	 * Find generator type by its command line name.
+	 * 
+	 * @param name
+	 *            Name of the generator (case insensitive).
+	 * 
+	 * @return Generator type.
+	 */
+	static Prng of(String name) {
+		return valueOf(name.trim().toUpperCase());
+	}
+
+	/**
+	 * Create independent generators from a single seed. Same seed and same
+	 * number of streams always give the same sequences.
+	 * 
+	 * @param seed
+	 *            Master seed.
+	 * @param count
+	 *            Number of streams.
+	 * 
+	 * @return Array of generators, one for each stream.
+	 */
+	RandomGenerator[] streams(long seed, int count) {
+		RandomGenerator result[] = new RandomGenerator[count];
+
+		SplitMix64 master = new SplitMix64(seed);
+		Xoroshiro128 jumper = new Xoroshiro128(seed);
+		for (int i = 0; i < count; i++) {
+			switch (this) {
+				case MERSENNE :
+					result[i] = new MersenneTwister(master.nextLong());
+					break;
+				case SPLITMIX :
+					result[i] = master.split();
+					break;
+				case XOROSHIRO :
+					result[i] = jumper.split();
+					break;
+				case PCG :
+					result[i] = new Pcg32(master.nextLong(), master.nextLong());
+					break;
+			}
+		}
+
+		return result;
+	}
+}
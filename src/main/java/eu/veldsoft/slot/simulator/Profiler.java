@@ -0,0 +1,161 @@
+package eu.veldsoft.slot.simulator;
+
+/**
+ * Throughput counters and sampled time measurement of the base game phases.
+ * Only one of many base games is measured, so the cost of the time reading is
+ * spread over all games.
+ *
+ * @author Todor Balabanov
+ */
+final class Profiler {
+	/** Spin of the reels. */
+	static final int SPIN = 0;
+
+	/** Wilds expansion. */
+	static final int EXPANSION = 1;
+
+	/** Lines evaluation. */
+	static final int LINES = 2;
+
+	/** Scatters evaluation. */
+	static final int SCATTERS = 3;
+
+	/** Statistics update. */
+	static final int STATISTICS = 4;
+
+	/** Cells collapse rounds. */
+	static final int COLLAPSES = 5;
+
+	/** Free games. */
+	static final int FREE_GAMES = 6;
+
+	/** Names of the phases. */
+	private static final String NAMES[] = { "Spin", "Wilds Expansion",
+			"Lines Evaluation", "Scatters Evaluation", "Statistics Update",
+			"Collapses", "Free Games" };
+
+	/** Mask of the game counter. Games with zero masked bits are measured. */
+	static final long SAMPLING = (1L << 6) - 1L;
+
+	/** Measured time of each phase in nanoseconds. */
+	private final long nanos[] = new long[NAMES.length];
+
+	/** Number of measured base games. */
+	private long samples = 0L;
+
+	/** Number of played base games. */
+	long games = 0L;
+
+	/** Number of played free games. */
+	long freeGames = 0L;
+
+	/** Number of collapse rounds in all base games. */
+	long collapses = 0L;
+
+	/** Time of the last phase end. */
+	private long last = 0L;
+
+	/** Wall clock time of the simulation in nanoseconds. */
+	long wall = 0L;
+
+	/** Time of the last progress report. */
+	private long reported = System.nanoTime();
+
+	/** Number of base games at the last progress report. */
+	private long reportedGames = 0L;
+
+	/** Number of free games at the last progress report. */
+	private long reportedFreeGames = 0L;
+
+	/**
+	 * Start measurement of a base game.
+	 */
+	void start() {
+		samples++;
+		last = System.nanoTime();
+	}
+
+	/**
+	 * Finish measurement of a phase and start measurement of the next one.
+	 *
+	 * @param phase
+	 *            Index of the finished phase.
+	 */
+	void mark(int phase) {
+		long now = System.nanoTime();
+		nanos[phase] += now - last;
+		last = now;
+	}
+
+	/**
+	 * Merge measurements of other context into this one.
+	 *
+	 * @param other
+	 *            Profiler with measurements to be added.
+	 */
+	void merge(Profiler other) {
+		for (int p = 0; p < nanos.length; p++) {
+			nanos[p] += other.nanos[p];
+		}
+		samples += other.samples;
+		games += other.games;
+		freeGames += other.freeGames;
+		collapses += other.collapses;
+	}
+
+	/**
+	 * Throughput since the previous progress report, formatted as progress
+	 * report columns.
+	 *
+	 * @param workers
+	 *            Working simulation contexts.
+	 *
+	 * @return Base games and free games per second.
+	 */
+	String rates(Simulation workers[]) {
+		long base = 0L;
+		long free = 0L;
+		for (Simulation worker : workers) {
+			base += worker.profiler.games;
+			free += worker.profiler.freeGames;
+		}
+
+		long now = System.nanoTime();
+		double seconds = Math.max(1L, now - reported) / 1E9D;
+		String result = String.format("\t%10.0f\t%10.0f",
+				(base - reportedGames) / seconds,
+				(free - reportedFreeGames) / seconds);
+
+		reported = now;
+		reportedGames = base;
+		reportedFreeGames = free;
+
+		return result;
+	}
+
+	/**
+	 * Print throughput and time distribution between the phases.
+	 */
+	void print() {
+		double seconds = Math.max(1L, wall) / 1E9D;
+		long total = 0L;
+		for (long value : nanos) {
+			total += value;
+		}
+
+		System.out.println("Base Games per Second:\t" + (games / seconds));
+		System.out.println("Free Games per Second:\t" + (freeGames / seconds));
+		System.out.println("Collapse Rounds:\t" + collapses);
+		System.out.println();
+		System.out.println("Phases Time (" + samples
+				+ " measured base games):");
+		System.out.println("Phase\tTime per Game (ns)\tShare");
+		for (int p = 0; p < nanos.length; p++) {
+			System.out.println(NAMES[p] + "\t"
+					+ (samples > 0 ? (double) nanos[p] / samples : 0D)
+					+ "\t"
+					+ (total > 0 ? 100D * nanos[p] / total : 0D) + "%");
+		}
+		System.out.println();
+	}
+}
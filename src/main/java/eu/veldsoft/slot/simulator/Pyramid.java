@@ -0,0 +1,109 @@
+package eu.veldsoft.slot.simulator;
+
+import java.util.Arrays;
+
+/**
+ * Credit trajectory with min/max levels of detail. Each level keeps the min
+ * and the max of pairs of nodes from the level below, so the min and the max
+ * of any range are found in logarithmic time and a chart can show millions of
+ * games with only one or two points for each pixel. The trajectory is written
+ * by the games thread and read by the drawing thread, so all methods are
+ * synchronized.
+ *
+ * @author Todor Balabanov
+ */
+final class Pyramid {
+	/** Initial capacity of the levels. */
+	private static final int CAPACITY = 1024;
+
+	/** Min values of the levels. Level zero holds the values themselves. */
+	private int mins[][] = { new int[CAPACITY] };
+
+	/** Max values of the levels. Level zero is the same as the min level. */
+	private int maxs[][] = { mins[0] };
+
+	/** Number of values. */
+	private int size = 0;
+
+	/**
+	 * Add value at the end of the trajectory.
+	 *
+	 * @param value
+	 *            Credit value.
+	 */
+	synchronized void add(int value) {
+		if (size == mins[0].length) {
+			mins[0] = Arrays.copyOf(mins[0], 2 * size);
+			maxs[0] = mins[0];
+		}
+		mins[0][size] = value;
+
+		/* Each completed pair of nodes completes a node one level above. */
+		for (int l = 0, i = size; (i & 1) == 1; l++, i >>= 1) {
+			if (l + 1 == mins.length) {
+				mins = Arrays.copyOf(mins, l + 2);
+				maxs = Arrays.copyOf(maxs, l + 2);
+				mins[l + 1] = new int[CAPACITY];
+				maxs[l + 1] = new int[CAPACITY];
+			}
+
+			int p = i >> 1;
+			if (p == mins[l + 1].length) {
+				mins[l + 1] = Arrays.copyOf(mins[l + 1], 2 * p);
+				maxs[l + 1] = Arrays.copyOf(maxs[l + 1], 2 * p);
+			}
+			mins[l + 1][p] = Math.min(mins[l][i - 1], mins[l][i]);
+			maxs[l + 1][p] = Math.max(maxs[l][i - 1], maxs[l][i]);
+		}
+
+		size++;
+	}
+
+	/**
+	 * Remove all values.
+	 */
+	synchronized void clear() {
+		mins = new int[][] { new int[CAPACITY] };
+		maxs = new int[][] { mins[0] };
+		size = 0;
+	}
+
+	/**
+	 * Number of values.
+	 *
+	 * @return Size of the trajectory.
+	 */
+	synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * Min and max of the values in a range. The range is covered by the
+	 * largest aligned nodes which fit in it.
+	 *
+	 * @param from
+	 *            First index of the range (inclusive).
+	 * @param to
+	 *            Last index of the range (exclusive).
+	 * @param result
+	 *            Array for the min (first element) and the max (second
+	 *            element).
+	 */
+	synchronized void range(int from, int to, int result[]) {
+		result[0] = Integer.MAX_VALUE;
+		result[1] = Integer.MIN_VALUE;
+
+		to = Math.min(to, size);
+		for (int i = Math.max(0, from); i < to;) {
+			int l = 0;
+			while (l + 1 < mins.length && (i & ((2 << l) - 1)) == 0
+					&& i + (2 << l) <= to) {
+				l++;
+			}
+
+			result[0] = Math.min(result[0], mins[l][i >> l]);
+			result[1] = Math.max(result[1], maxs[l][i >> l]);
+			i += 1 << l;
+		}
+	}
+}
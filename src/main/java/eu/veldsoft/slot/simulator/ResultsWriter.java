@@ -0,0 +1,312 @@
+package eu.veldsoft.slot.simulator;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+/**
+ * Export of the simulation statistics into Excel workbook. The workbook is
+ * written with the streaming writer, so only a small window of rows is kept
+ * in memory and sheets with millions of rows (like the balance curve) can be
+ * written.
+ *
+ * @author Todor Balabanov
+ */
+final class ResultsWriter {
+	/** Number of rows kept in memory before they are flushed to disk. */
+	private static final int WINDOW = 100;
+
+	/** Max number of rows in a single sheet. */
+	private static final int MAX_ROWS = SpreadsheetVersion.EXCEL2007
+			.getMaxRows();
+
+	/** Streaming workbook. */
+	private final SXSSFWorkbook workbook = new SXSSFWorkbook(WINDOW);
+
+	/** Sheet which is written at the moment. */
+	private Sheet sheet = null;
+
+	/** Index of the next row in the current sheet. */
+	private int row = 0;
+
+	/**
+	 * Start new sheet.
+	 *
+	 * @param name
+	 *            Sheet name.
+	 */
+	private void sheet(String name) {
+		sheet = workbook.createSheet(name);
+		row = 0;
+	}
+
+	/**
+	 * Write row of values in the current sheet. Text values are stored as
+	 * strings and numbers as numeric cells. Nulls and numbers which are not
+	 * finite (like division by zero) are left blank.
+	 *
+	 * @param values
+	 *            Cells values.
+	 */
+	private void row(Object... values) {
+		Row cells = sheet.createRow(row++);
+
+		for (int c = 0; c < values.length; c++) {
+			if (values[c] instanceof Number) {
+				double value = ((Number) values[c]).doubleValue();
+				if (Double.isNaN(value) == false
+						&& Double.isInfinite(value) == false) {
+					cells.createCell(c).setCellValue(value);
+				}
+			} else if (values[c] != null) {
+				Cell cell = cells.createCell(c);
+				cell.setCellValue(values[c].toString());
+			}
+		}
+	}
+
+	/**
+	 * Write table of symbols statistics with title, header of the number of
+	 * symbols and symbols names as rows.
+	 *
+	 * @param title
+	 *            Table title.
+	 * @param values
+	 *            Statistics indexed by number of symbols and symbol index.
+	 * @param divisor
+	 *            Divisor of the values.
+	 */
+	private void table(String title, long values[][], double divisor) {
+		row(title);
+
+		Object header[] = new Object[values.length + 1];
+		for (int i = 0; i < values.length; i++) {
+			header[i + 1] = "" + i + "of";
+		}
+		row(header);
+
+		for (int j = 0; j < values[0].length; j++) {
+			Object cells[] = new Object[values.length + 1];
+			cells[0] = Simulation.SYMBOLS.get(j).name;
+			for (int i = 0; i < values.length; i++) {
+				cells[i + 1] = (double) values[i][j] / divisor;
+			}
+			row(cells);
+		}
+
+		row();
+	}
+
+	/**
+	 * Write histogram of the wins as bins and counts columns. Bins are the
+	 * same as in the printed statistics.
+	 *
+	 * @param name
+	 *            Sheet name.
+	 * @param histogram
+	 *            Wins histogram.
+	 * @param max
+	 *            Max win.
+	 */
+	private void histogram(String name, Histogram histogram, long max) {
+		sheet(name);
+		row("Bin", "Count");
+
+		for (int left = 0, right = Simulation.initialBin; right < max; left = right, right += right
+				+ Simulation.binIncrement) {
+			row("< " + right, histogram.count(left, right));
+		}
+	}
+
+	/**
+	 * Write balance curve. If the full curve is spilled in a file it is
+	 * written and when it does not fit in a single sheet it continues in the
+	 * next sheets. Otherwise the downsampled curve is written.
+	 *
+	 * @param name
+	 *            Sheet name.
+	 * @param balance
+	 *            Credit after every base game.
+	 *
+	 * @throws IOException
+	 *             If the spill file can not be read.
+	 */
+	private void balance(String name, Balance balance) throws IOException {
+		sheet(name);
+
+		if (balance.spilled() == false) {
+			row("Game", "Min Credit", "Max Credit", "Last Credit");
+			for (int b = 0; b < balance.buckets(); b++) {
+				row(balance.first(b), balance.min(b), balance.max(b),
+						balance.last(b));
+			}
+			return;
+		}
+
+		int part = 1;
+		row("Game", "Credit");
+		for (long game = 0; game < balance.size(); game++) {
+			if (row >= MAX_ROWS) {
+				part++;
+				sheet(name + " Part " + part);
+				row("Game", "Credit");
+			}
+
+			row(game, balance.get(game));
+		}
+	}
+
+	/**
+	 * Write all statistics of the simulation.
+	 *
+	 * @param result
+	 *            Simulation context with the merged statistics.
+	 * @param balance
+	 *            Balance curve export flag.
+	 *
+	 * @throws IOException
+	 *             If the balance curve can not be read.
+	 */
+	private void statistics(Simulation result, boolean balance)
+			throws IOException {
+		double lost = result.lostMoney;
+		double games = result.totalNumberOfGames;
+
+		sheet("Summary");
+		row("Won money", result.wonMoney);
+		row("Lost money", result.lostMoney);
+		row("Total Number of Games", result.totalNumberOfGames);
+		row("Total Number of Free Games", result.totalNumberOfFreeGames);
+		row();
+		row("Total RTP", result.wonMoney / lost);
+		row("Base Game RTP", result.baseMoney / lost);
+		row("Free Game RTP", result.freeMoney / lost);
+		if (Simulation.bruteForce == false
+				&& result.gameOutcomes.count() > 1) {
+			row("Total RTP " + (100.0D * Simulation.confidence)
+					+ "% Confidence Interval",
+					Simulation.interval(result.gameOutcomes));
+		}
+		row();
+		row("Hit Frequency in Base Game", result.baseGameHitRate / games);
+		row("Hit Frequency in Free Game", (double) result.freeGamesHitRate
+				/ (double) result.totalNumberOfFreeGames);
+		row("Hit Frequency Base Game into Free Game",
+				result.totalNumberOfFreeGameStarts / games);
+		row("Hit Frequency Free Game into Free Game",
+				(double) result.totalNumberOfFreeGameRestarts
+						/ (double) result.totalNumberOfFreeGameStarts);
+		row();
+		row("Max Win in Base Game", result.baseMaxWin);
+		row("Max Win in Free Game", result.freeMaxWin);
+		row("Max Number of Free Games in Single Run",
+				result.maxSingleRunFreeGames);
+		row("Max Number of Collapses in Single Run", result.maxCollapses);
+		row();
+		row("Base Game Win Mean", result.baseOutcomes.mean());
+		row("Base Game Win Standard Deviation",
+				result.baseOutcomes.standardDeviation());
+		row("Base Game Win Skewness", result.baseOutcomes.skewness());
+		row("Base Game Win Kurtosis", result.baseOutcomes.kurtosis());
+		row("Free Games Win Mean", result.freeOutcomes.mean());
+		row("Free Games Win Standard Deviation",
+				result.freeOutcomes.standardDeviation());
+		row("Free Games Win Skewness", result.freeOutcomes.skewness());
+		row("Free Games Win Kurtosis", result.freeOutcomes.kurtosis());
+
+		histogram("Base Game Wins Histogram", result.baseWinsHistogram,
+				result.baseMaxWin);
+		histogram("Free Games Wins Histogram", result.freeWinsHistogram,
+				result.freeMaxWin);
+
+		sheet("Base Game Symbols");
+		table("Base Game Symbols RTP", result.baseSymbolMoney, lost);
+		table("Base Game Symbols Wins Ratio", result.baseSymbolMoney,
+				result.baseMoney);
+		table("Base Game Symbols Hit Rate", result.baseGameSymbolsHitRate, 1D);
+		table("Base Game Symbols Hit Frequency", result.baseGameSymbolsHitRate,
+				games);
+
+		sheet("Free Games Symbols");
+		table("Free Games Symbols RTP", result.freeSymbolMoney, lost);
+		table("Free Games Symbols Wins Ratio", result.freeSymbolMoney,
+				result.freeMoney);
+		table("Free Games Symbols Hit Frequency",
+				result.freeGameSymbolsHitRate, games);
+		table("Free Games Symbols Hit Rate", result.freeGameSymbolsHitRate,
+				1D);
+
+		/* Each worker plays its own session, so it has its own curve. */
+		if (balance == true && result.otherBalances.isEmpty() == true) {
+			balance("Balance", result.balance);
+		} else if (balance == true) {
+			balance("Balance 1", result.balance);
+			for (int w = 0; w < result.otherBalances.size(); w++) {
+				balance("Balance " + (w + 2), result.otherBalances.get(w));
+			}
+		}
+	}
+
+	/**
+	 * Write the statistics of the simulation in a file.
+	 *
+	 * @param file
+	 *            Excel file name.
+	 * @param result
+	 *            Simulation context with the merged statistics.
+	 * @param balance
+	 *            Balance curve export flag.
+	 *
+	 * @throws IOException
+	 *             If the file can not be written.
+	 */
+	static void write(String file, Simulation result, boolean balance)
+			throws IOException {
+		ResultsWriter writer = new ResultsWriter();
+		writer.workbook.setCompressTempFiles(true);
+
+		try (OutputStream out = new FileOutputStream(file)) {
+			writer.statistics(result, balance);
+			writer.workbook.write(out);
+		} finally {
+			/* Temporary files of the flushed rows are removed. */
+			writer.workbook.dispose();
+			writer.workbook.close();
+		}
+	}
+
+	/**
+	 * Write the statistics of the simulation in a file by a background
+	 * thread. The statistics should not be changed until the writing is done.
+	 *
+	 * @param file
+	 *            Excel file name.
+	 * @param result
+	 *            Simulation context with the merged statistics.
+	 * @param balance
+	 *            Balance curve export flag.
+	 *
+	 * @return Result of the writing.
+	 */
+	static Future<?> start(String file, Simulation result, boolean balance) {
+		ExecutorService exporter = Executors.newSingleThreadExecutor();
+
+		try {
+			return exporter.submit(() -> {
+				write(file, result, balance);
+				return null;
+			});
+		} finally {
+			exporter.shutdown();
+		}
+	}
+}
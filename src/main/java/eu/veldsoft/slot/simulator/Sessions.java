@@ -0,0 +1,347 @@
+package eu.veldsoft.slot.simulator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.math3.random.RandomGenerator;
+
+/**
+ * Player sessions with bills loading. Each session starts with empty credit,
+ * loads the bills from the bills loading schedule one by one, when the credit
+ * drops below the total bet, and ends when all bills are played. The credit
+ * left at the end is paid out. For each loaded bill the highest credit
+ * reached before the next loading, starting with the credit right after the
+ * loading, is compared to multiples of the bill. Only counters are kept for
+ * each session, so any number of sessions can be simulated.
+ *
+ * @author Todor Balabanov
+ */
+final class Sessions {
+	/**
+	 * Highest credit milestone as multiple of the loaded bill. Milestones
+	 * start from the double bill, because the credit right after the loading
+	 * is never less than the bill.
+	 */
+	static final int MILESTONES = 10;
+
+	/**
+	 * Max number of base games in a single session. It stops the sessions of
+	 * games which return more than the bet.
+	 */
+	static final long MAX_GAMES = 10_000_000L;
+
+	/** Distinct values of the bills in ascending order. */
+	private final int bills[];
+
+	/** Simulation context which plays the games of the sessions. */
+	private final Simulation game = new Simulation();
+
+	/** Number of played sessions. */
+	long sessions = 0L;
+
+	/** Number of base games in all sessions. */
+	long games = 0L;
+
+	/** Total amount of loaded money. */
+	long in = 0L;
+
+	/** Total amount of paid out money. */
+	long out = 0L;
+
+	/** Total amount of bets. */
+	long bet = 0L;
+
+	/** Total amount of wins. */
+	long win = 0L;
+
+	/** Number of sessions stopped by the games limit. */
+	long unfinished = 0L;
+
+	/** Max number of base games in a single session. */
+	long maxLength = 0L;
+
+	/** Number of loadings of each bill. */
+	final long loads[];
+
+	/**
+	 * Number of loadings of each bill after which the credit reached the bill
+	 * multiplied by the milestone index plus two.
+	 */
+	final long reached[][];
+
+	/**
+	 * Number of loadings of each bill after which the credit was over the
+	 * last milestone. Line wins are not always multiples of the bet, so the
+	 * credit can stay exactly at the last milestone.
+	 */
+	final long over[];
+
+	/** Moments of the number of base games in a session. */
+	final Moments lengths = new Moments();
+
+	/** Distribution of the number of base games in a session. */
+	final Histogram lengthsHistogram = new Histogram();
+
+	/**
+	 * Constructor with the values of the bills.
+	 *
+	 * @param bills
+	 *            Distinct values of the bills in ascending order.
+	 */
+	Sessions(int bills[]) {
+		this.bills = bills;
+		loads = new long[bills.length];
+		reached = new long[bills.length][MILESTONES - 1];
+		over = new long[bills.length];
+	}
+
+	/**
+	 * Play single session.
+	 */
+	void play() {
+		long played = 0L;
+		long loaded = 0L;
+
+		game.credit = 0;
+		for (int bill : Simulation.coins) {
+			game.credit += bill;
+			loaded += bill;
+
+			/* Next bill is loaded when the credit is not enough for a bet. */
+			int peak = game.credit;
+			while (game.credit >= Simulation.totalBet && played < MAX_GAMES) {
+				game.singleBaseGame();
+				played++;
+
+				if (game.credit > peak) {
+					peak = game.credit;
+				}
+			}
+
+			int b = Arrays.binarySearch(bills, bill);
+			loads[b]++;
+			for (int k = 0; k < MILESTONES - 1; k++) {
+				if (peak >= (long) (k + 2) * bill) {
+					reached[b][k]++;
+				}
+			}
+			if (peak > (long) MILESTONES * bill) {
+				over[b]++;
+			}
+		}
+
+		/* The balance of the session is not needed. */
+		game.balance.clear();
+
+		sessions++;
+		games += played;
+		in += loaded;
+		out += game.credit;
+		bet += played * Simulation.totalBet;
+		win += game.credit - loaded + played * Simulation.totalBet;
+		if (played >= MAX_GAMES) {
+			unfinished++;
+		}
+		maxLength = Math.max(maxLength, played);
+		lengths.add(played);
+		lengthsHistogram.add((int) Math.min(Integer.MAX_VALUE, played));
+	}
+
+	/**
+	 * Merge statistics of other sessions into this one.
+	 *
+	 * @param other
+	 *            Sessions with statistics to be added.
+	 */
+	void merge(Sessions other) {
+		sessions += other.sessions;
+		games += other.games;
+		in += other.in;
+		out += other.out;
+		bet += other.bet;
+		win += other.win;
+		unfinished += other.unfinished;
+		maxLength = Math.max(maxLength, other.maxLength);
+		for (int b = 0; b < bills.length; b++) {
+			loads[b] += other.loads[b];
+			for (int k = 0; k < MILESTONES - 1; k++) {
+				reached[b][k] += other.reached[b][k];
+			}
+			over[b] += other.over[b];
+		}
+		lengths.merge(other.lengths);
+		lengthsHistogram.merge(other.lengthsHistogram);
+	}
+
+	/**
+	 * Print progress report line with the statistics of all working sessions.
+	 *
+	 * @param session
+	 *            Number of sessions played so far.
+	 * @param numberOfSessions
+	 *            Total number of sessions to be played.
+	 * @param workers
+	 *            Working sessions.
+	 */
+	private static void printProgress(long session, long numberOfSessions,
+			Sessions workers[]) {
+		long games = 0L;
+		long in = 0L;
+		long out = 0L;
+		for (Sessions worker : workers) {
+			games += worker.games;
+			in += worker.in;
+			out += worker.out;
+		}
+
+		System.out.print(session + " of " + numberOfSessions);
+		System.out.print("\t");
+		System.out.print(games);
+		System.out.print("\t");
+		System.out.print(String.format("  %6.2f", 100D * out / in));
+		System.out.println();
+	}
+
+	/**
+	 * Print sessions statistics.
+	 */
+	void printStatistics() {
+		System.out.println("Sessions:\t" + sessions);
+		System.out.println("Total Games:\t" + games);
+		System.out.println("Total In:\t" + in);
+		System.out.println("Total Out:\t" + out);
+		System.out.println("Total Win:\t" + win);
+		System.out.println("Total Bet:\t" + bet);
+		System.out.println();
+		System.out.println("Out to In Ratio:\t" + ((double) out / in) + "\t\t"
+				+ (100.0D * out / in) + "%");
+		System.out.println("Win to Bet Ratio:\t" + ((double) win / bet) + "\t\t"
+				+ (100.0D * win / bet) + "%");
+		System.out.println();
+		System.out.println("Session Length Mean:\t" + lengths.mean());
+		System.out.println("Session Length Standard Deviation:\t"
+				+ lengths.standardDeviation());
+		System.out.println("Max Session Length:\t" + maxLength);
+		System.out.println(
+				"Sessions Stopped after " + MAX_GAMES + " Games:\t" + unfinished);
+		System.out.println();
+		System.out.println("Session Length Histogram:");
+		/* Histogram. */ {
+			for (int left = 0, right = Simulation.initialBin; left <= maxLength; left = right, right += right
+					+ Simulation.binIncrement) {
+				System.out.print("< " + right + "\t");
+			}
+			System.out.println();
+			for (int left = 0, right = Simulation.initialBin; left <= maxLength; left = right, right += right
+					+ Simulation.binIncrement) {
+				System.out.print(lengthsHistogram.count(left, right) + "\t");
+			}
+		}
+		System.out.println();
+		System.out.println();
+		for (int b = 0; b < bills.length; b++) {
+			System.out.println("Credit Reached after Loading of " + bills[b]
+					+ " (" + loads[b] + " loadings):");
+			for (int k = 0; k < MILESTONES - 1; k++) {
+				System.out.print(">= " + (long) (k + 2) * bills[b] + "\t");
+			}
+			System.out.println("> " + (long) MILESTONES * bills[b]);
+			for (int k = 0; k < MILESTONES - 1; k++) {
+				System.out.print((double) reached[b][k] / loads[b] + "\t");
+			}
+			System.out.println((double) over[b] / loads[b]);
+			System.out.println();
+		}
+	}
+
+	/**
+	 * Play independent player sessions and print the statistics. Sessions
+	 * are split between parallel workers, each one with its own random
+	 * stream.
+	 *
+	 * @param numberOfSessions
+	 *            Number of sessions to be played.
+	 * @param progressPrintOnIteration
+	 *            Number of sessions between progress reports.
+	 *
+	 * @return Merged statistics of all sessions.
+	 */
+	static Sessions simulate(long numberOfSessions,
+			long progressPrintOnIteration) {
+		int threads = Math.max(1, Simulation.numberOfThreads);
+
+		/* Milestones are counted separately for each value of the bills. */
+		int bills[] = new TreeSet<Integer>(Simulation.coins).stream()
+				.mapToInt(Integer::intValue).toArray();
+
+		RandomGenerator streams[] = Util.prngType.streams(Util.seed, threads);
+		Sessions workers[] = new Sessions[threads];
+		for (int w = 0; w < workers.length; w++) {
+			workers[w] = new Sessions(bills);
+			workers[w].game.prng = streams[w];
+		}
+
+		long round = numberOfSessions;
+		if (Simulation.verboseOutput == true && progressPrintOnIteration > 0) {
+			round = progressPrintOnIteration;
+		}
+
+		if (Simulation.verboseOutput == true) {
+			System.out.println("PRNG:\t" + Util.prngType + "\t" + Util.seed);
+			System.out.println("Sessions\tGames\tOut/In");
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(workers.length);
+		try {
+			for (long s = 0; s < numberOfSessions; s += round) {
+				if (Simulation.verboseOutput == true) {
+					printProgress(s, numberOfSessions, workers);
+				}
+
+				/* Split the round between the workers. */
+				long sessions = Math.min(round, numberOfSessions - s);
+				List<Future<?>> futures = new ArrayList<Future<?>>();
+				for (int w = 0; w < workers.length; w++) {
+					final Sessions worker = workers[w];
+					final long share = sessions / workers.length
+							+ (w < sessions % workers.length ? 1 : 0);
+
+					futures.add(pool.submit(() -> {
+						for (long i = 0L; i < share; i++) {
+							worker.play();
+						}
+					}));
+				}
+
+				for (Future<?> future : futures) {
+					future.get();
+				}
+			}
+		} catch (InterruptedException | ExecutionException e) {
+			/* Sessions of the failed worker are missing, so there is no report. */
+			System.err.println(e);
+			System.exit(1);
+		} finally {
+			pool.shutdown();
+		}
+
+		Sessions result = workers[0];
+		for (int w = 1; w < workers.length; w++) {
+			result.merge(workers[w]);
+		}
+
+		System.out.println(
+				"********************************************************************************");
+		result.printStatistics();
+		System.out.println(
+				"********************************************************************************");
+
+		return result;
+	}
+}
@@ -1,15 +1,30 @@
 package eu.veldsoft.slot.simulator;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.PrintStream;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.math3.distribution.NormalDistribution;
+import org.apache.commons.math3.random.RandomGenerator;
 
 /**
- * Game simulation logic.
+ * Game simulation logic. Game configuration is shared by all instances, but
+ * each instance keeps its own game state and statistics, so many instances can
+ * play in parallel and to be merged at the end.
  * 
  * @author Todor Balabanov
  */
@@ -39,8 +54,8 @@ class Simulation {
 	/** Lines combinations. */
 	static final List<Line> LINES = new ArrayList<Line>();
 
-	/** Target RTP percent. */
-	// private static double targetRtp = 0;
+	/** Target RTP as a fraction of the bets. */
+	static double targetRtp = 0D;
 
 	/** Stips in the base game as symbols names. */
 	static String[][] baseStrips = {};
@@ -54,20 +69,95 @@ class Simulation {
 	/** Stips in free spins. */
 	static Symbol[][] freeReels = {};
 
+	/**
+	 * Symbols indexed by their codes in the compiled game. The code of a
+	 * symbol is its index.
+	 */
+	static Symbol[] symbols = {};
+
+	/** Code of the empty cell in the compiled game. */
+	static int empty = 0;
+
+	/** Traits of the symbols as bit flags indexed by symbol code. */
+	static int[] traits = {};
+
+	/** Flat pay table indexed by symbol code multiplied by stride plus count. */
+	static int[] pays = {};
+
+	/** Stride of the flat pay table, which is number of reels plus one. */
+	static int stride = 0;
+
+	/** Codes of the wild symbols. */
+	static int[] wilds = {};
+
+	/** Codes of the scatter symbols. */
+	static int[] scatters = {};
+
+	/** Stips in base game as symbols codes. */
+	static int[][] baseCodes = {};
+
+	/** Stips in free spins as symbols codes. */
+	static int[][] freeCodes = {};
+
+	/**
+	 * Base game strips as symbols codes with the top of the strip repeated at
+	 * the end, so the visible part of the reel never wraps.
+	 */
+	static int[][] baseWrapped = {};
+
+	/**
+	 * Free spins strips as symbols codes with the top of the strip repeated at
+	 * the end, so the visible part of the reel never wraps.
+	 */
+	static int[][] freeWrapped = {};
+
+	/** Number of scatters in the visible part of the base game reels. */
+	static int[][] baseScatters = {};
+
+	/** Number of scatters in the visible part of the free spins reels. */
+	static int[][] freeScatters = {};
+
+	/** Number of reels on the screen. */
+	static int numberOfReels = 0;
+
+	/** Number of rows on the screen. */
+	static int numberOfRows = 0;
+
+	/** Number of threads used in Monte Carlo simulation. */
+	static int numberOfThreads = 1;
+
+	/**
+	 * Pseudo-random number generator of this simulation context. It is the
+	 * common generator, unless the context gets its own stream.
+	 */
+	RandomGenerator prng = Util.PRNG;
+
 	/**
 	 * Use reels stops in brute force combinations generation and collapse
 	 * feature.
 	 */
-	static int[] reelsStops = {};
+	int[] reelsStops = {};
+
+	/**
+	 * Number of leading reels which stops are fixed by the brute force
+	 * partition of this context.
+	 */
+	int fixedReels = 0;
+
+	/** Current visible symbols codes on the screen. */
+	int[][] view = {};
 
-	/** Current visible symbols on the screen. */
-	static Symbol[][] view = {};
+	/**
+	 * Number of scatters on the screen known from the spin or minus one if the
+	 * screen was changed after the spin.
+	 */
+	int scattersOnScreen = -1;
 
 	/** Cells on the screen which took part of the wins. */
-	static boolean[][] winners = {};
+	boolean[][] winners = {};
 
 	/** Lines on the screen which took part of the wins. */
-	static int[] winnerLines = {};
+	int[] winnerLines = {};
 
 	/** Current free spins multiplier. */
 	static int freeGamesMultiplier = 0;
@@ -79,7 +169,7 @@ class Simulation {
 	static int scatterMultiplier = 0;
 
 	/** Balance of the game. */
-	static int credit = 0;
+	int credit = 0;
 
 	/** Total bet in single base game spin. */
 	static int singleLineBet = 0;
@@ -88,69 +178,85 @@ class Simulation {
 	static int totalBet = 0;
 
 	/** Total win in single base game spin. */
-	static int totalWin = 0;
+	int totalWin = 0;
 
 	/** Free spins to be played. */
-	static int freeGamesNumber = 0;
+	int freeGamesNumber = 0;
 
 	/** Total amount of won money. */
-	static long wonMoney = 0L;
+	long wonMoney = 0L;
 
 	/** Total amount of lost money. */
-	static long lostMoney = 0L;
+	long lostMoney = 0L;
+
+	/**
+	 * Game balance, which is the credit after every base game, downsampled
+	 * in fixed memory.
+	 */
+	final Balance balance = new Balance();
 
-	/** Game balance, which is the credit after every base game. */
-	static final List<Integer> balance = new ArrayList<Integer>();
+	/**
+	 * Balances of the other workers, whose statistics are merged in this
+	 * context. Balances are not merged, so each one stays a separate curve.
+	 */
+	final List<Balance> otherBalances = new ArrayList<Balance>();
 
 	/** List of coins to be loaded as credit. */
 	static final List<Integer> coins = new ArrayList<Integer>();
 
 	/** Total amount of won money in base game. */
-	static long baseMoney = 0L;
+	long baseMoney = 0L;
 
 	/**
-	 * All values as win in the base game (even zeros) for the whole simulation.
+	 * Moments of the wins in the base game (even zeros) for the whole
+	 * simulation.
 	 */
-	static List<Integer> baseOutcomes = new ArrayList<Integer>();
+	final Moments baseOutcomes = new Moments();
 
 	/** Total amount of won money in free spins. */
-	static long freeMoney = 0L;
+	long freeMoney = 0L;
 
 	/**
-	 * All values as win in the free spins (even zeros) for the whole
+	 * Moments of the wins in the free spins (even zeros) for the whole
 	 * simulation.
 	 */
-	static List<Integer> freeOutcomes = new ArrayList<Integer>();
+	final Moments freeOutcomes = new Moments();
+
+	/**
+	 * Moments of the total wins of the base games, free spins included, for
+	 * the whole simulation.
+	 */
+	final Moments gameOutcomes = new Moments();
 
 	/** Max amount of won money in base game. */
-	static long baseMaxWin = 0L;
+	long baseMaxWin = 0L;
 
 	/** Max amount of won money in free spins. */
-	static long freeMaxWin = 0L;
+	long freeMaxWin = 0L;
 
 	/** Total number of base games played. */
-	static long totalNumberOfGames = 0L;
+	long totalNumberOfGames = 0L;
 
 	/** Total number of free spins played. */
-	static long totalNumberOfFreeGames = 0L;
+	long totalNumberOfFreeGames = 0L;
 
 	/** Total number of free spins started. */
-	static long totalNumberOfFreeGameStarts = 0L;
+	long totalNumberOfFreeGameStarts = 0L;
 
 	/** Total number of free spins started. */
-	static long totalNumberOfFreeGameRestarts = 0L;
+	long totalNumberOfFreeGameRestarts = 0L;
 
 	/** Maximum number of free games in a single start. */
-	static int maxSingleRunFreeGames = 0;
+	int maxSingleRunFreeGames = 0;
 
 	/** Maximum number of collapses in a single start. */
-	static int maxCollapses = 0;
+	int maxCollapses = 0;
 
 	/** Hit rate of wins in base game. */
-	static long baseGameHitRate = 0L;
+	long baseGameHitRate = 0L;
 
 	/** Hit rate of wins in free spins. */
-	static long freeGamesHitRate = 0L;
+	long freeGamesHitRate = 0L;
 
 	/** Verbose output flag. */
 	static boolean verboseOutput = false;
@@ -185,37 +291,131 @@ class Simulation {
 	/** Brute force all winning combinations in base game only flag. */
 	static boolean bruteForce = false;
 
+	/** Exact calculation of the base game instead of simulation flag. */
+	static boolean exact = false;
+
+	/**
+	 * Half width of the total RTP confidence interval at which the
+	 * simulation stops. Zero for simulation with fixed number of games.
+	 */
+	static double precision = 0D;
+
+	/** Confidence level of the total RTP confidence interval. */
+	static double confidence = 0.99D;
+
+	/** Throughput and phases time measurement flag. */
+	static boolean profile = false;
+
+	/** JMX view of the running simulation or null. */
+	static Monitor monitor = null;
+
+	/** File for periodic checkpoints of the simulation or null. */
+	static String checkpointFile = null;
+
+	/** Checkpoint from which the simulation is resumed or null. */
+	static Checkpoint resumed = null;
+
+	/** Excel file for the statistics of the simulation or null. */
+	static String outputFile = null;
+
+	/** Balance curve in the Excel file flag. */
+	static boolean outputBalance = false;
+
+	/**
+	 * File for the full balance curve of the simulation or null. Each worker
+	 * has its own file, when there are many workers.
+	 */
+	static String balanceFile = null;
+
 	/** Size of the first bin in the histogram. */
 	static int initialBin = 1;
 
 	/** Increment used for next bin in the histogram. */
 	static int binIncrement = 0;
 
+	/** Buffer for the symbols of a line. */
+	private int[] line = {};
+
+	/** Buffer for the symbols of a line in reverse order. */
+	private int[] reverse = {};
+
+	/** Buffer for the statistics of the lines (count, symbol index, win). */
+	private int[][] linesStatistics = {};
+
+	/** Buffer for the statistics of the scatters (count, symbol index, win). */
+	private int[][] scatterStatistics = {};
+
+	/** Buffer for the statistics of the checks done by wilds expansion. */
+	private int[][] expansionStatistics = {};
+
+	/** Buffer for the counters of the scatters on the screen. */
+	private int[] numberOfScatters = {};
+
+	/** Buffer for copy of the screen used by wilds expansion. */
+	private int[][] copy = {};
+
+	/** Buffer for the screen of the previous free spin. */
+	private int[][] previous = {};
+
+	/** Positions on which the reels stopped in the base game. */
+	private int[] stops = {};
+
+	/** Positions on which the reels stopped in the free spins. */
+	private int[] freeStops = {};
+
+	/** Base game reels as symbols codes played by this context. */
+	private int[][] baseGameCodes = {};
+
+	/** Wrapped base game reels played by this context. */
+	private int[][] baseGameWrapped = {};
+
+	/** Number of scatters in the visible part of the base game reels. */
+	private int[][] baseGameScatters = {};
+
+	/** Wrapped free spins reels played by this context. */
+	private int[][] freeGameWrapped = {};
+
+	/** Number of scatters in the visible part of the free spins reels. */
+	private int[][] freeGameScatters = {};
+
+	/** Wild symbol of the best wild line. */
+	private int wildLineSymbol = 0;
+
+	/** Number of wilds in the best wild line. */
+	private int wildLineNumber = 0;
+
+	/** Win of the best wild line. */
+	private int wildLineValue = 0;
+
 	/** Symbols win hit rate in base game. */
-	static long[][] baseSymbolMoney = {};
+	long[][] baseSymbolMoney = {};
 
 	/** Symbols hit rate in base game. */
-	static long[][] baseGameSymbolsHitRate = {};
+	long[][] baseGameSymbolsHitRate = {};
 
 	/** Symbols win hit rate in base game. */
-	static long[][] freeSymbolMoney = {};
+	long[][] freeSymbolMoney = {};
 
 	/** Symbols hit rate in base game. */
-	static long[][] freeGameSymbolsHitRate = {};
+	long[][] freeGameSymbolsHitRate = {};
 
 	/** Distribution of the wins according their amount in the base game. */
-	static Map<Integer, Long> baseWinsHistogram = new HashMap<Integer, Long>();
+	final Histogram baseWinsHistogram = new Histogram();
 
 	/** Distribution of the wins according their amount in the free spins. */
-	static Map<Integer, Long> freeWinsHistogram = new HashMap<Integer, Long>();
+	final Histogram freeWinsHistogram = new Histogram();
+
+	/** Throughput and phases time measurement or null if it is off. */
+	Profiler profiler = null;
 
 	/**
 	 * Clear supporting structures.
 	 */
-	static void clear() {
+	void clear() {
+		scattersOnScreen = -1;
 		for (int i = 0; i < view.length; i++) {
 			for (int j = 0; j < view[i].length; j++) {
-				view[i][j] = Util.NO_SYMBOL;
+				view[i][j] = empty;
 			}
 		}
 
@@ -237,7 +437,7 @@ class Simulation {
 	 *            Print stream reference.
 	 */
 	@SuppressWarnings("unused")
-	private static void printView(PrintStream out) {
+	private void printView(PrintStream out) {
 		int max = view[0].length;
 		for (int i = 0; i < view.length; i++) {
 			if (max < view[i].length) {
@@ -247,12 +447,12 @@ class Simulation {
 
 		for (int j = 0; j < max; j++) {
 			for (int i = 0; i < view.length && j < view[i].length; i++) {
-				if (view[i][j] == Util.NO_SYMBOL) {
+				if (view[i][j] == empty) {
 					out.print("***\t");
 					continue;
 				}
 
-				out.print(view[i][j].name + "\t");
+				out.print(symbols[view[i][j]].name + "\t");
 			}
 
 			out.println();
@@ -297,46 +497,374 @@ class Simulation {
 			}
 		}
 
-		/* Initialize view with no symbols. */
-		for (int i = 0; i < view.length; i++) {
-			for (int j = 0; j < view[i].length; j++) {
-				view[i][j] = Util.NO_SYMBOL;
-			}
-		}
+		compile();
 
 		/* Adjust multipliers. */
 		singleLineBet = 1;
 
 		/* Calculate total bet. */
 		totalBet = singleLineBet * LINES.size();
+	}
+
+	/**
+	 * Compile the loaded game into symbols codes, traits flags and flat pay
+	 * table, which are used by the evaluators instead of the symbols sets.
+	 */
+	private static void compile() {
+		/* The code after the biggest symbol index is used for empty cells. */
+		empty = 0;
+		for (Symbol symbol : SYMBOLS) {
+			empty = Math.max(empty, symbol.index + 1);
+		}
+
+		stride = numberOfReels + 1;
+		symbols = new Symbol[empty + 1];
+		traits = new int[empty + 1];
+		pays = new int[(empty + 1) * stride];
+		for (Symbol symbol : SYMBOLS) {
+			symbols[symbol.index] = symbol;
+
+			if (WILDS.contains(symbol) == true) {
+				traits[symbol.index] |= Symbol.WILD;
+			}
+			if (EXTENDS.contains(symbol) == true) {
+				traits[symbol.index] |= Symbol.EXTEND;
+			}
+			if (SCATTERS.contains(symbol) == true) {
+				traits[symbol.index] |= Symbol.SCATTER;
+			}
+			if (FREES.contains(symbol) == true) {
+				traits[symbol.index] |= Symbol.FREE;
+			}
+			if (BONUSES.contains(symbol) == true) {
+				traits[symbol.index] |= Symbol.BONUS;
+			}
+
+			/* Symbols out of the pay table pay nothing. */
+			for (int c = 0; symbol.pays != null && c < symbol.pays.length
+					&& c < stride; c++) {
+				pays[symbol.index * stride + c] = symbol.pays[c];
+			}
+		}
+
+		/* Keep the order in which the sets are iterated. */
+		int k = 0;
+		wilds = new int[WILDS.size()];
+		for (Symbol wild : WILDS) {
+			wilds[k++] = wild.index;
+		}
+
+		k = 0;
+		scatters = new int[SCATTERS.size()];
+		for (Symbol scatter : SCATTERS) {
+			scatters[k++] = scatter.index;
+		}
+
+		baseCodes = codes(baseReels);
+		freeCodes = codes(freeReels);
+		baseWrapped = wrap(baseCodes);
+		freeWrapped = wrap(freeCodes);
+		baseScatters = countScatters(baseWrapped);
+		freeScatters = countScatters(freeWrapped);
+	}
+
+	/**
+	 * Repeat the top of each strip at its end, so as many symbols as the rows
+	 * can be taken from any stop without wrapping.
+	 * 
+	 * @param reels
+	 *            Reels strips as symbols codes.
+	 * 
+	 * @return Wrapped reels strips.
+	 */
+	private static int[][] wrap(int[][] reels) {
+		int[][] result = new int[reels.length][];
+
+		for (int i = 0; i < reels.length; i++) {
+			result[i] = new int[reels[i].length + numberOfRows - 1];
+			for (int j = 0; reels[i].length > 0 && j < result[i].length; j++) {
+				result[i][j] = reels[i][j % reels[i].length];
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Count scatters in the visible part of each reel for each stop.
+	 * 
+	 * @param wrapped
+	 *            Wrapped reels strips.
+	 * 
+	 * @return Number of scatters for each reel and stop.
+	 */
+	private static int[][] countScatters(int[][] wrapped) {
+		int[][] result = new int[wrapped.length][];
+
+		for (int i = 0; i < wrapped.length; i++) {
+			result[i] = new int[wrapped[i].length - numberOfRows + 1];
+			for (int s = 0; s < result[i].length; s++) {
+				for (int j = s; j < s + numberOfRows; j++) {
+					if ((traits[wrapped[i][j]] & Symbol.SCATTER) != 0) {
+						result[i][s]++;
+					}
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Transform reels of symbols to reels of symbols codes.
+	 * 
+	 * @param reels
+	 *            Reels strips.
+	 * 
+	 * @return Reels strips as symbols codes.
+	 */
+	private static int[][] codes(Symbol[][] reels) {
+		int[][] result = new int[reels.length][];
+
+		for (int i = 0; i < reels.length; i++) {
+			result[i] = new int[reels[i].length];
+			for (int j = 0; j < reels[i].length; j++) {
+				if (reels[i][j] == Util.NO_SYMBOL) {
+					result[i][j] = empty;
+				} else {
+					result[i][j] = reels[i][j].index;
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Simulation context constructor. It should be called after the game
+	 * structure is loaded and initialized.
+	 */
+	Simulation() {
+		view = new int[numberOfReels][numberOfRows];
+		winners = new boolean[numberOfReels][numberOfRows];
+		winnerLines = new int[LINES.size()];
+
+		/* Initialize view with no symbols. */
+		for (int i = 0; i < view.length; i++) {
+			Arrays.fill(view[i], empty);
+		}
+
+		/*
+		 * Minus one is needed in order first combination to start from zeros in
+		 * brute force calculations.
+		 */
+		reelsStops = new int[baseReels.length];
+		if (reelsStops.length > 0) {
+			reelsStops[0] = -1;
+		}
+
+		/* Allocate buffers used during the games. */
+		line = new int[numberOfReels];
+		reverse = new int[numberOfReels];
+		linesStatistics = new int[2 * LINES.size()][3];
+		scatterStatistics = new int[scatters.length][3];
+		expansionStatistics = new int[2 * LINES.size()][3];
+		numberOfScatters = new int[scatters.length];
+		copy = new int[numberOfReels][numberOfRows];
+		previous = new int[numberOfReels][numberOfRows];
+		stops = new int[baseReels.length];
+		freeStops = new int[freeReels.length];
+
+		/* The loaded reels are played by default. */
+		baseGameCodes = baseCodes;
+		baseGameWrapped = baseWrapped;
+		baseGameScatters = baseScatters;
+		freeGameWrapped = freeWrapped;
+		freeGameScatters = freeScatters;
 
 		/* Allocate memory for the counters. */
 		baseSymbolMoney = new long[view.length + 1][SYMBOLS.size()];
 		baseGameSymbolsHitRate = new long[view.length + 1][SYMBOLS.size()];
 		freeSymbolMoney = new long[view.length + 1][SYMBOLS.size()];
 		freeGameSymbolsHitRate = new long[view.length + 1][SYMBOLS.size()];
-		// TODO Counters should be initialized with zeros.
 
-		baseOutcomes.clear();
-		freeOutcomes.clear();
+		if (profile == true) {
+			profiler = new Profiler();
+		}
 	}
 
 	/**
-	 * Calculate all combinations in base game.
+	 * Play other reels instead of the loaded ones. The reels should have the
+	 * same number of reels as the loaded ones.
 	 * 
-	 * @return Total number of combinations in the base game.
+	 * @param base
+	 *            Base game reels as symbols codes.
+	 * @param free
+	 *            Free spins reels as symbols codes.
 	 */
-	static long baseGameNumberOfCombinations() {
+	void reels(int[][] base, int[][] free) {
+		baseGameCodes = base;
+		baseGameWrapped = wrap(base);
+		baseGameScatters = countScatters(baseGameWrapped);
+		freeGameWrapped = wrap(free);
+		freeGameScatters = countScatters(freeGameWrapped);
+	}
+
+	/**
+	 * Merge statistics collected by other simulation context into this one.
+	 * 
+	 * @param other
+	 *            Simulation context with statistics to be added.
+	 */
+	void merge(Simulation other) {
+		wonMoney += other.wonMoney;
+		lostMoney += other.lostMoney;
+		baseMoney += other.baseMoney;
+		freeMoney += other.freeMoney;
+		totalNumberOfGames += other.totalNumberOfGames;
+		totalNumberOfFreeGames += other.totalNumberOfFreeGames;
+		totalNumberOfFreeGameStarts += other.totalNumberOfFreeGameStarts;
+		totalNumberOfFreeGameRestarts += other.totalNumberOfFreeGameRestarts;
+		baseGameHitRate += other.baseGameHitRate;
+		freeGamesHitRate += other.freeGamesHitRate;
+
+		baseMaxWin = Math.max(baseMaxWin, other.baseMaxWin);
+		freeMaxWin = Math.max(freeMaxWin, other.freeMaxWin);
+		maxSingleRunFreeGames = Math.max(maxSingleRunFreeGames,
+				other.maxSingleRunFreeGames);
+		maxCollapses = Math.max(maxCollapses, other.maxCollapses);
+
+		/* Symbols statistics have the same dimensions in all contexts. */
+		for (int i = 0; i < baseSymbolMoney.length; i++) {
+			for (int j = 0; j < baseSymbolMoney[i].length; j++) {
+				baseSymbolMoney[i][j] += other.baseSymbolMoney[i][j];
+				baseGameSymbolsHitRate[i][j] += other.baseGameSymbolsHitRate[i][j];
+				freeSymbolMoney[i][j] += other.freeSymbolMoney[i][j];
+				freeGameSymbolsHitRate[i][j] += other.freeGameSymbolsHitRate[i][j];
+			}
+		}
+
+		baseWinsHistogram.merge(other.baseWinsHistogram);
+		freeWinsHistogram.merge(other.freeWinsHistogram);
+
+		baseOutcomes.merge(other.baseOutcomes);
+		freeOutcomes.merge(other.freeOutcomes);
+		gameOutcomes.merge(other.gameOutcomes);
+
+		if (profiler != null && other.profiler != null) {
+			profiler.merge(other.profiler);
+		}
+
 		/*
-		 * Minus one is needed in order first combination to start from zeros in
-		 * brute force calculations.
+		 * Credit and balance are related to the player session of the
+		 * particular context and they are not merged.
 		 */
-		reelsStops = new int[baseReels.length];
-		for (int i = 1; i < reelsStops.length; i++) {
-			reelsStops[i] = 0;
+	}
+
+	/**
+	 * Write the statistics, the credit and the pseudo-random number generator
+	 * state of this context.
+	 * 
+	 * @param out
+	 *            Output to write to.
+	 * 
+	 * @throws IOException
+	 *             If the output fails.
+	 */
+	void write(ObjectOutputStream out) throws IOException {
+		out.writeInt(credit);
+		out.writeLong(wonMoney);
+		out.writeLong(lostMoney);
+		out.writeLong(baseMoney);
+		out.writeLong(freeMoney);
+		out.writeLong(baseMaxWin);
+		out.writeLong(freeMaxWin);
+		out.writeLong(totalNumberOfGames);
+		out.writeLong(totalNumberOfFreeGames);
+		out.writeLong(totalNumberOfFreeGameStarts);
+		out.writeLong(totalNumberOfFreeGameRestarts);
+		out.writeInt(maxSingleRunFreeGames);
+		out.writeInt(maxCollapses);
+		out.writeLong(baseGameHitRate);
+		out.writeLong(freeGamesHitRate);
+
+		/* Symbols statistics have the same dimensions in all contexts. */
+		for (long counters[][] : new long[][][] { baseSymbolMoney,
+				baseGameSymbolsHitRate, freeSymbolMoney,
+				freeGameSymbolsHitRate }) {
+			for (int i = 0; i < counters.length; i++) {
+				for (int j = 0; j < counters[i].length; j++) {
+					out.writeLong(counters[i][j]);
+				}
+			}
 		}
-		reelsStops[0] = -1;
 
+		baseWinsHistogram.write(out);
+		freeWinsHistogram.write(out);
+
+		baseOutcomes.write(out);
+		freeOutcomes.write(out);
+		gameOutcomes.write(out);
+
+		out.writeObject(prng);
+	}
+
+	/**
+	 * Read the statistics, the credit and the pseudo-random number generator
+	 * state written by other context of the same game.
+	 * 
+	 * @param in
+	 *            Input to read from.
+	 * 
+	 * @throws IOException
+	 *             If the input fails.
+	 * @throws ClassNotFoundException
+	 *             If the pseudo-random number generator is unknown.
+	 */
+	void read(ObjectInputStream in)
+			throws IOException, ClassNotFoundException {
+		credit = in.readInt();
+		wonMoney = in.readLong();
+		lostMoney = in.readLong();
+		baseMoney = in.readLong();
+		freeMoney = in.readLong();
+		baseMaxWin = in.readLong();
+		freeMaxWin = in.readLong();
+		totalNumberOfGames = in.readLong();
+		totalNumberOfFreeGames = in.readLong();
+		totalNumberOfFreeGameStarts = in.readLong();
+		totalNumberOfFreeGameRestarts = in.readLong();
+		maxSingleRunFreeGames = in.readInt();
+		maxCollapses = in.readInt();
+		baseGameHitRate = in.readLong();
+		freeGamesHitRate = in.readLong();
+
+		for (long counters[][] : new long[][][] { baseSymbolMoney,
+				baseGameSymbolsHitRate, freeSymbolMoney,
+				freeGameSymbolsHitRate }) {
+			for (int i = 0; i < counters.length; i++) {
+				for (int j = 0; j < counters[i].length; j++) {
+					counters[i][j] = in.readLong();
+				}
+			}
+		}
+
+		baseWinsHistogram.read(in);
+		freeWinsHistogram.read(in);
+
+		baseOutcomes.read(in);
+		freeOutcomes.read(in);
+		gameOutcomes.read(in);
+
+		prng = (RandomGenerator) in.readObject();
+	}
+
+	/**
+	 * Calculate all combinations in base game.
+	 * 
+	 * @return Total number of combinations in the base game.
+	 */
+	static long baseGameNumberOfCombinations() {
 		long result = 1;
 		for (int i = 0; i < baseReels.length; i++) {
 			result *= baseReels[i].length;
@@ -346,16 +874,19 @@ class Simulation {
 	}
 
 	/**
-	 * Single reels spin to fill view with symbols.
+	 * Move reels stops to the next combination in the base game.
 	 *
-	 * @param reels
-	 *            Reels strips.
+	 * @param reelsStops
+	 *            Reels stops of the current combination.
+	 * @param from
+	 *            Index of the first reel which is moving. Reels before it are
+	 *            fixed.
 	 */
-	static void nextCombination(int[] reelsStops) {
-		reelsStops[0] += 1;
+	static void nextCombination(int[] reelsStops, int from) {
+		reelsStops[from] += 1;
 
 		/* Handle all reels one by one. */
-		for (int i = 0; i < reelsStops.length; i++) {
+		for (int i = from; i < reelsStops.length; i++) {
 			/* Do nothing if the edge of the reel is not reached. */
 			if (reelsStops[i] < baseReels[i].length) {
 				continue;
@@ -381,7 +912,9 @@ class Simulation {
 	 * @param stops
 	 *            Positions where reels were stopped.
 	 */
-	static void collapse(Symbol view[][], Symbol reels[][], int stops[]) {
+	void collapse(int view[][], int reels[][], int stops[]) {
+		scattersOnScreen = -1;
+
 		/* Clear symbols which was part of the total win. */
 		for (int i = 0; i < winners.length; i++) {
 			for (int j = 0; j < winners[i].length; j++) {
@@ -389,7 +922,7 @@ class Simulation {
 					continue;
 				}
 
-				view[i][j] = Util.NO_SYMBOL;
+				view[i][j] = empty;
 			}
 		}
 
@@ -402,10 +935,9 @@ class Simulation {
 				 * Swap empty symbol with the symbol above it and restart reel
 				 * checking.
 				 */
-				if (view[i][j - 1] != Util.NO_SYMBOL
-						&& view[i][j] == Util.NO_SYMBOL) {
+				if (view[i][j - 1] != empty && view[i][j] == empty) {
 					view[i][j] = view[i][j - 1];
-					view[i][j - 1] = Util.NO_SYMBOL;
+					view[i][j - 1] = empty;
 					done = false;
 				}
 			}
@@ -420,7 +952,7 @@ class Simulation {
 		for (int i = 0; i < view.length; i++) {
 			for (int j = view[i].length - 1; j >= 0; j--) {
 				/* If the cell is not empty do nothing. */
-				if (view[i][j] != Util.NO_SYMBOL) {
+				if (view[i][j] != empty) {
 					continue;
 				}
 
@@ -437,68 +969,46 @@ class Simulation {
 	}
 
 	/**
-	 * Initialize an empty line.
-	 * 
-	 * @param size
-	 *            Size of a single line.
-	 * 
-	 * @return Single line as array with no symbols.
-	 */
-	static Symbol[] emptyLine(int size) {
-		Symbol[] line = new Symbol[size];
-
-		for (int i = 0; i < line.length; i++) {
-			line[i] = Util.NO_SYMBOL;
-		}
-
-		return line;
-	}
-
-	/**
-	 * Calculate win in particular line.
+	 * Calculate the best win of a line led by wilds. The result is stored in
+	 * the wild line fields of the context.
 	 *
 	 * @param line
 	 *            Single line.
-	 *
-	 * @return Calculated win.
 	 */
-	static Object[] wildLineWin(Symbol[] line) {
-		/* Wild index with counter and win amount. */
-		Object[][] values = new Object[WILDS.size()][];
-		for (int i = 0; i < WILDS.size(); i++) {
-			values[i] = new Object[]{WILDS.toArray()[i], Integer.valueOf(0),
-					Integer.valueOf(0)};
-		}
+	void wildLineWin(int[] line) {
+		wildLineSymbol = empty;
+		wildLineNumber = 0;
+		wildLineValue = 0;
 
 		/* If there is no leading wild there is no wild win. */
-		if (WILDS.contains(line[0]) == false) {
-			return (new Object[]{Util.NO_SYMBOL.index, Integer.valueOf(0),
-					Integer.valueOf(0)});
+		if ((traits[line[0]] & Symbol.WILD) == 0) {
+			return;
 		}
 
 		/* Each wild can lead to different level of win. */
-		int index = 0;
-		for (int j = 0; j < values.length; j++) {
+		boolean first = true;
+		for (int wild : wilds) {
 			/* Wild symbol passing to find first regular symbol. */
+			int number = 0;
 			for (int i = 0; i < line.length; i++) {
 				/* First no wild symbol found. */
-				if (line[i] != values[j][0]) {
+				if (line[i] != wild) {
 					break;
 				}
 
 				/* Count how long is the wild line. */
-				values[j][1] = ((Integer) values[j][1]) + 1;
+				number++;
 			}
 
 			/* Calculate win marked by line with wilds. */
-			values[j][2] = singleLineBet
-					* ((Symbol) values[j][0]).pays[(Integer) values[j][1]];
-			if ((Integer) values[index][2] < (Integer) values[j][2]) {
-				index = j;
+			int value = singleLineBet * pays[wild * stride + number];
+			if (first == true || wildLineValue < value) {
+				wildLineSymbol = wild;
+				wildLineNumber = number;
+				wildLineValue = value;
 			}
+			first = false;
 		}
-
-		return (values[index]);
 	}
 
 	/**
@@ -513,35 +1023,32 @@ class Simulation {
 	 *
 	 * @return Calculated win.
 	 */
-	static int lineWin(Symbol line[], int statistics[][], int index) {
+	int lineWin(int line[], int statistics[][], int index) {
 		/* Scatter can not lead win combination. */
-		if (SCATTERS.contains(line[0]) == true) {
+		if ((traits[line[0]] & Symbol.SCATTER) != 0) {
 			return 0;
 		}
 
 		/* Calculate wild win if there is any. */
-		Object[] wildWin = Simulation.wildLineWin(line);
+		wildLineWin(line);
 
 		/* Keep first symbol in the line. */
-		Symbol symbol = line[0];
+		int symbol = line[0];
 
 		/* Wild symbol passing to find first regular symbol. */
 		for (int i = 0; i < line.length; i++) {
-			if (line[i] == Util.NO_SYMBOL) {
+			if (line[i] == empty) {
 				break;
 			}
 
 			/* Scatter stops the line. */
-			if (SCATTERS.contains(line[i]) == true) {
+			if ((traits[line[i]] & Symbol.SCATTER) != 0) {
 				break;
 			}
 
 			/* First no wild symbol found. */
-			if (WILDS.contains(line[i]) == false) {
-				if (SCATTERS.contains(line[i]) == false) {
-					symbol = line[i];
-				}
-
+			if ((traits[line[i]] & Symbol.WILD) == 0) {
+				symbol = line[i];
 				break;
 			}
 		}
@@ -552,12 +1059,12 @@ class Simulation {
 		/* Wild symbol substitution. */
 		for (int i = 0; i < line.length && wildsOff == false; i++) {
 			/* Scatter is not substituted. */
-			if (SCATTERS.contains(line[i]) == true) {
+			if ((traits[line[i]] & Symbol.SCATTER) != 0) {
 				continue;
 			}
 
 			/* Only wilds are substituted. */
-			if (WILDS.contains(line[i]) == false) {
+			if ((traits[line[i]] & Symbol.WILD) == 0) {
 				continue;
 			}
 
@@ -580,24 +1087,27 @@ class Simulation {
 
 		/* Clear unused symbols. */
 		for (int i = number; i < line.length; i++) {
-			line[i] = Util.NO_SYMBOL;
+			line[i] = empty;
 		}
 
 		/* Calculate single line win. */
-		int win = singleLineBet * symbol.pays[number] * lineMultiplier;
+		int win = singleLineBet * pays[symbol * stride + number]
+				* lineMultiplier;
 
 		/* Adjust the win according wild line information. */
-		if (win < (Integer) wildWin[2]) {
-			symbol = (Symbol) wildWin[0];
-			number = (Integer) wildWin[1];
-			win = (Integer) wildWin[2];
+		if (win < wildLineValue) {
+			symbol = wildLineSymbol;
+			number = wildLineNumber;
+			win = wildLineValue;
 		}
 
 		/*
 		 * Collect statistics for the scatter wins (symbol count, symbol index,
 		 * win).
 		 */
-		statistics[index] = new int[]{number, symbol.index, win};
+		statistics[index][0] = number;
+		statistics[index][1] = symbol;
+		statistics[index][2] = win;
 
 		return (win);
 	}
@@ -608,33 +1118,38 @@ class Simulation {
 	 * @param view
 	 *            Symbols visible in screen view.
 	 * @param statistics
-	 *            Statistical information output.
+	 *            Statistical information output, a row for each line followed
+	 *            by a row for each line checked from right to left.
 	 *
 	 * @return Calculated win.
 	 */
-	static int linesWin(Symbol[][] view, int statistics[][]) {
+	int linesWin(int[][] view, int statistics[][]) {
 		int win = 0;
 
+		/* Rows of the lines without win should stay empty. */
+		for (int row[] : statistics) {
+			row[0] = 0;
+			row[1] = 0;
+			row[2] = 0;
+		}
+
 		/* Check wins in all possible lines. */
 		for (int l = 0; l < LINES.size(); l++) {
-			/* Initialize an empty line. */
-			Symbol[] line = Simulation.emptyLine(LINES.get(l).positions.length);
-			Symbol[] reverse = Simulation
-					.emptyLine(LINES.get(l).positions.length);
+			int positions[] = LINES.get(l).positions;
 
 			/* Prepare line for combination check. */
-			for (int i = 0; i < line.length; i++) {
-				int index = LINES.get(l).positions[i];
+			for (int i = 0; i < positions.length; i++) {
+				int index = positions[i];
 				line[i] = view[i][index];
-				reverse[line.length - i - 1] = view[i][index];
+				reverse[positions.length - i - 1] = view[i][index];
 			}
 
-			int result = Simulation.lineWin(line, statistics, l);
+			int result = lineWin(line, statistics, l);
 
 			/* Mark cells used in win formation only if there is a win. */
-			for (int i = 0; result > 0 && i < line.length
-					&& line[i] != Util.NO_SYMBOL; i++) {
-				int index = LINES.get(l).positions[i];
+			for (int i = 0; result > 0 && i < positions.length
+					&& line[i] != empty; i++) {
+				int index = positions[i];
 				winners[i][index] = true;
 				winnerLines[l] = result;
 			}
@@ -644,12 +1159,12 @@ class Simulation {
 
 			/* Check from right to left. */
 			if (extraStars == true) {
-				result = Simulation.lineWin(reverse, statistics, l);
+				result = lineWin(reverse, statistics, LINES.size() + l);
 
 				/* Mark cells used in win formation only if there is a win. */
-				for (int i = 0; result > 0 && i < reverse.length
-						&& reverse[i] != Util.NO_SYMBOL; i++) {
-					int index = LINES.get(l).positions[line.length - i - 1];
+				for (int i = 0; result > 0 && i < positions.length
+						&& reverse[i] != empty; i++) {
+					int index = positions[positions.length - i - 1];
 					winners[i][index] = true;
 					winnerLines[l] = result;
 				}
@@ -672,39 +1187,48 @@ class Simulation {
 	 *
 	 * @return Win from scatters.
 	 */
-	static int scatterWin(Symbol[][] view, int statistics[][]) {
-		/* Create as many counters as many scatters there in the game. */
-		Map<Symbol, Integer> numberOfScatters = new HashMap<Symbol, Integer>();
-		for (Symbol scatter : SCATTERS) {
-			numberOfScatters.put(scatter, 0);
-		}
-
+	int scatterWin(int[][] view, int statistics[][]) {
 		/* Count scatters on the screen. */
-		for (Symbol scatter : SCATTERS) {
+		int k = 0;
+		for (int scatter : scatters) {
 			// TODO More than one scatter symbol should be handled differently.
+			numberOfScatters[k] = 0;
 
-			for (int i = 0; i < view.length; i++) {
+			/* Single scatter symbol is counted during the spin. */
+			boolean counted = view == this.view && scattersOnScreen >= 0
+					&& scatters.length == 1;
+			if (counted == true) {
+				numberOfScatters[k] = scattersOnScreen;
+			}
+
+			for (int i = 0; counted == false && i < view.length; i++) {
 				for (int j = 0; j < view[i].length; j++) {
 					if (scatter != view[i][j]) {
 						continue;
 					}
 
-					numberOfScatters.put(view[i][j],
-							numberOfScatters.get(view[i][j]) + 1);
+					numberOfScatters[k]++;
 				}
 			}
+
+			/* Statistics are collected only if there is a win. */
+			statistics[k][2] = 0;
+			k++;
 		}
 
-		int k = 0;
+		int c = 0;
+		k = 0;
 		int win = 0;
-		for (Symbol scatter : SCATTERS) {
+		for (int scatter : scatters) {
+			/* More scatters than reels are paid as many as the reels. */
+			int number = Math.min(numberOfScatters[c++], numberOfReels);
+
 			/* Calculate scatter win. */
 			int value = 0;
 			if (luckyLadysCharm == true) {
-				value = scatter.pays[numberOfScatters.get(scatter)]
-						* scatterMultiplier;
+				value = pays[scatter * stride + number] * scatterMultiplier;
 			} else {
-				value = scatter.pays[numberOfScatters.get(scatter)] * totalBet
+				value = pays[scatter * stride + number] * totalBet
 						* scatterMultiplier;
 			}
 
@@ -717,8 +1241,10 @@ class Simulation {
 			 * Collect statistics for the scatter wins (number of scatters,
 			 * scatter index, win).
 			 */
-			statistics[k++] = new int[]{numberOfScatters.get(scatter),
-					scatter.index, value};
+			statistics[k][0] = number;
+			statistics[k][1] = scatter;
+			statistics[k][2] = value;
+			k++;
 
 			/* Mark cells used in win formation only if there is a win. */
 			for (int i = 0; i < view.length; i++) {
@@ -744,26 +1270,26 @@ class Simulation {
 	 * @param view
 	 *            Screen with symbols.
 	 */
-	static boolean burningHotSubstitution(Symbol[][] view) {
+	boolean burningHotSubstitution(int[][] view) {
 		boolean result = false;
 
 		/* Check wins in all possible lines. */
 		int progress = 0;
 		start : for (int l = 0; l < LINES.size(); l++) {
 			/* Initialize an empty line. */
-			Symbol[] line = Simulation.emptyLine(LINES.get(l).positions.length);
+			Arrays.fill(line, empty);
 
 			/* Prepare line for combination check. */
 			for (int i = 0; i < line.length; i++) {
 				int index = LINES.get(l).positions[i];
 				line[i] = view[i][index];
-				Symbol substituent = line[i];
+				int substituent = line[i];
 
 				/*
 				 * If current symbol is not wild there is no need to check for a
 				 * win.
 				 */
-				if (WILDS.contains(line[i]) == false) {
+				if ((traits[line[i]] & Symbol.WILD) == 0) {
 					continue;
 				}
 
@@ -771,8 +1297,7 @@ class Simulation {
 				 * If current symbol is wild, but there is no win no expansion
 				 * is done.
 				 */
-				if (Simulation.lineWin(line, new int[LINES.size()][3],
-						l) <= 0) {
+				if (lineWin(line, expansionStatistics, l) <= 0) {
 					continue;
 				}
 
@@ -811,13 +1336,12 @@ class Simulation {
 	 * @param original
 	 *            Screen with symbols.
 	 */
-	static boolean luckyAndWildSubstitution(Symbol[][] original) {
+	boolean luckyAndWildSubstitution(int[][] original) {
 		boolean result = false;
 
 		/* Deep copy of the view. */
-		Symbol[][] view = new Symbol[original.length][];
+		int[][] view = copy;
 		for (int i = 0; i < original.length; i++) {
-			view[i] = new Symbol[original[i].length];
 			for (int j = 0; j < original[i].length; j++) {
 				view[i][j] = original[i][j];
 			}
@@ -825,13 +1349,13 @@ class Simulation {
 
 		// TODO It should not be substituted by this way, but it will be done
 		// like this, because of the customer request.
-		Symbol substituent = WILDS.iterator().next();
+		int substituent = wilds[0];
 
 		/* Expand wilds. */
 		for (int i = 0; i < view.length; i++) {
 			for (int j = 0; j < view[i].length; j++) {
 				/* Do nothing if the wild is not extend wild. */
-				if (EXTENDS.contains(view[i][j]) == true) {
+				if ((traits[view[i][j]] & Symbol.EXTEND) != 0) {
 					continue;
 				}
 
@@ -853,7 +1377,7 @@ class Simulation {
 						}
 
 						/* Scatters are not substituted. */
-						if (SCATTERS.contains(view[k][l]) == true) {
+						if ((traits[view[k][l]] & Symbol.SCATTER) != 0) {
 							continue;
 						}
 
@@ -876,19 +1400,18 @@ class Simulation {
 	 * @param original
 	 *            Screen with symbols.
 	 */
-	static boolean twentyHotBlastSubstitution(Symbol[][] original) {
+	boolean twentyHotBlastSubstitution(int[][] original) {
 		boolean result = false;
 
 		/* Deep copy of the view. */
-		Symbol[][] view = new Symbol[original.length][];
+		int[][] view = copy;
 		for (int i = 0; i < original.length; i++) {
-			view[i] = new Symbol[original[i].length];
 			for (int j = 0; j < original[i].length; j++) {
 				view[i][j] = original[i][j];
 			}
 		}
 
-		Symbol substituent = WILDS.iterator().next();
+		int substituent = wilds[0];
 
 		/* Prepare view for wins checking by expanding the wild. */
 		for (int i = 0; i < view.length; i++) {
@@ -906,7 +1429,7 @@ class Simulation {
 		}
 
 		/* Deep copy of the view with the expanded wilds. */
-		if (Simulation.linesWin(view, new int[LINES.size()][3]) > 0) {
+		if (linesWin(view, expansionStatistics) > 0) {
 			result = true;
 
 			for (int i = 0; i < view.length; i++) {
@@ -925,10 +1448,10 @@ class Simulation {
 	 * @param original1
 	 *            Screen with symbols.
 	 */
-	static boolean extraStarsSubstitution(Symbol[][] original) {
+	static boolean extraStarsSubstitution(int[][] original) {
 		boolean result = false;
 
-		Symbol substituent = WILDS.iterator().next();
+		int substituent = wilds[0];
 
 		/* Prepare view for wins checking by expanding the wild. */
 		for (int i = 0, j, r; i < original.length; i++) {
@@ -957,26 +1480,6 @@ class Simulation {
 		return result;
 	}
 
-	/**
-	 * Update histogram information when there is a win.
-	 * 
-	 * @param histogram
-	 *            Histogram array.
-	 * @param win
-	 *            Win value.
-	 */
-	static void updateHistogram(Map<Integer, Long> histogram, Integer win) {
-		/*
-		 * If the win is bigger than array cells available the win is not
-		 * counted.
-		 */
-		if (histogram.containsKey(win) == false) {
-			histogram.put(win, 1L);
-		} else {
-			histogram.put(win, histogram.get(win) + 1L);
-		}
-	}
-
 	/**
 	 * Play single Arabian Nights bonus game.
 	 */
@@ -994,14 +1497,12 @@ class Simulation {
 	 * 
 	 * @return Won amount.
 	 */
-	static int singleCollapseGame(int multiplier, int stops[]) {
-		collapse(view, baseReels, stops);
+	int singleCollapseGame(int multiplier, int stops[]) {
+		collapse(view, baseGameCodes, stops);
 
 		/* Win accumulated by lines. */
-		int[][] linesStatistics = new int[LINES.size()][3];
-		int[][] scatterStatistics = new int[SCATTERS.size()][3];
-		int win = Simulation.linesWin(view, linesStatistics)
-				+ Simulation.scatterWin(view, scatterStatistics);
+		int win = linesWin(view, linesStatistics)
+				+ scatterWin(view, scatterStatistics);
 
 		/* Collect statistics for the lines win. */
 		for (int statistics[] : linesStatistics) {
@@ -1028,10 +1529,7 @@ class Simulation {
 		/* There is collapse multiplier. */
 		win *= multiplier;
 
-		/*
-		 * Keep values for mathematical expectation and standard deviation
-		 * calculation.
-		 */
+		/* Update moments for mathematical expectation and deviation. */
 		baseOutcomes.add(win);
 
 		/* Add win to the statistics. */
@@ -1048,7 +1546,7 @@ class Simulation {
 
 		/* Count in the histogram. */
 		if (win > 0) {
-			Simulation.updateHistogram(baseWinsHistogram, win);
+			baseWinsHistogram.add(win);
 		}
 
 		return win;
@@ -1057,7 +1555,7 @@ class Simulation {
 	/**
 	 * Setup parameters for free spins mode.
 	 */
-	static void freeGamesSetup() {
+	void freeGamesSetup() {
 		if (bruteForce == true) {
 			return;
 		}
@@ -1066,16 +1564,14 @@ class Simulation {
 			return;
 		}
 
-		/* Calculate number of scatters. */
-		int numberOfScatters = 0;
-		for (Symbol scatter : SCATTERS) {
-			for (int i = 0; i < view.length; i++) {
-				for (int j = 0; j < view[i].length; j++) {
-					// TODO If there are more than one scatter symbol it is not
-					// common all of them to trigger free games.
-					if (view[i][j] == scatter) {
-						numberOfScatters++;
-					}
+		/* Calculate number of scatters, if it is not known from the spin. */
+		int numberOfScatters = Math.max(0, scattersOnScreen);
+		for (int i = 0; scattersOnScreen < 0 && i < view.length; i++) {
+			for (int j = 0; j < view[i].length; j++) {
+				// TODO If there are more than one scatter symbol it is not
+				// common all of them to trigger free games.
+				if ((traits[view[i][j]] & Symbol.SCATTER) != 0) {
+					numberOfScatters++;
 				}
 			}
 		}
@@ -1108,39 +1604,36 @@ class Simulation {
 	/**
 	 * Single reels spin to fill view with symbols.
 	 *
-	 * @param reels
-	 *            Reels strips.
+	 * @param wrapped
+	 *            Wrapped reels strips.
+	 * @param counts
+	 *            Number of scatters in the visible part of the reels.
 	 * @param stops
 	 *            Positions on which reels were stopped.
 	 */
-	static void spin(Symbol[][] reels, int stops[]) {
-		/* Spin all reels. */
-		for (int i = 0; i < view.length && i < reels.length; i++) {
-			int column[] = new int[view[i].length];
+	void spin(int[][] wrapped, int[][] counts, int stops[]) {
+		scattersOnScreen = 0;
 
+		/* Spin all reels. */
+		for (int i = 0; i < view.length && i < wrapped.length; i++) {
 			/* Switch between Brute Force and Monte Carlo. */
+			int stop;
 			if (bruteForce == true) {
-				column[0] = reelsStops[i];
+				stop = stops[i] = reelsStops[i];
 			} else {
-				column[0] = stops[i] = Util.PRNG.nextInt(reels[i].length);
-			}
-
-			/* Fill symbols for the particular column. */
-			for (int c = 1; c < column.length; c++) {
-				column[c] = (column[0] + c) % reels[i].length;
+				stop = stops[i] = prng.nextInt(counts[i].length);
 			}
 
-			/* Copy the column into the view array. */
-			for (int j = 0; j < view[i].length; j++) {
-				view[i][j] = reels[i][column[j]];
-			}
+			/* Copy the visible part of the reel into the view array. */
+			System.arraycopy(wrapped[i], stop, view[i], 0, view[i].length);
+			scattersOnScreen += counts[i][stop];
 		}
 	}
 
 	/**
 	 * Play single free spin game.
 	 */
-	static void singleFreeGame() {
+	void singleFreeGame() {
 		if (bruteForce == true) {
 			return;
 		}
@@ -1150,12 +1643,10 @@ class Simulation {
 		}
 
 		/* Keep copy of wilds. */
-		Symbol[][] old = null;
+		int[][] old = previous;
 		if (extraStars == true) {
 			/* Deep copy of the view. */
-			old = new Symbol[view.length][];
 			for (int i = 0; i < view.length; i++) {
-				old[i] = new Symbol[view[i].length];
 				for (int j = 0; j < view[i].length; j++) {
 					old[i][j] = view[i][j];
 				}
@@ -1164,14 +1655,14 @@ class Simulation {
 
 		/* Spin reels. */
 		clear();
-		Simulation.spin(freeReels, new int[freeReels.length]);
+		spin(freeGameWrapped, freeGameScatters, freeStops);
 
 		/* Do Extra Stars style wilds expansion. */
 		if (extraStars == true) {
 			/* Recover wilds. */
 			for (int i = 0; i < view.length; i++) {
 				for (int j = 0; j < view[i].length; j++) {
-					if (EXTENDS.contains(old[i][j]) == true) {
+					if ((traits[old[i][j]] & Symbol.EXTEND) != 0) {
 						continue;
 					}
 
@@ -1179,6 +1670,7 @@ class Simulation {
 					view[i][j] = old[i][j];
 				}
 			}
+			scattersOnScreen = -1;
 
 			boolean expanded = Simulation.extraStarsSubstitution(view);
 
@@ -1189,10 +1681,8 @@ class Simulation {
 		}
 
 		/* Win accumulated by lines. */
-		int[][] linesStatistics = new int[LINES.size()][3];
-		int[][] scatterStatistics = new int[SCATTERS.size()][3];
-		int win = Simulation.linesWin(view, linesStatistics)
-				+ Simulation.scatterWin(view, scatterStatistics);
+		int win = linesWin(view, linesStatistics)
+				+ scatterWin(view, scatterStatistics);
 		win *= freeGamesMultiplier;
 		totalWin += win;
 
@@ -1218,10 +1708,7 @@ class Simulation {
 			freeGameSymbolsHitRate[statistics[0]][statistics[1]]++;
 		}
 
-		/*
-		 * Keep values for mathematical expectation and standard deviation
-		 * calculation.
-		 */
+		/* Update moments for mathematical expectation and deviation. */
 		freeOutcomes.add(win);
 
 		/* Add win to the statistics. */
@@ -1238,17 +1725,26 @@ class Simulation {
 
 		/* Count in the histogram. */
 		if (win > 0) {
-			Simulation.updateHistogram(freeWinsHistogram, win);
+			freeWinsHistogram.add(win);
 		}
 
 		/* Check for free games. */
-		Simulation.freeGamesSetup();
+		freeGamesSetup();
 	}
 
 	/**
 	 * Play single base game.
 	 */
-	static void singleBaseGame() {
+	void singleBaseGame() {
+		/* Only part of the games is measured. */
+		Profiler timer = null;
+		if (profiler != null
+				&& (totalNumberOfGames & Profiler.SAMPLING) == 0) {
+			timer = profiler;
+			timer.start();
+		}
+
+		long won = wonMoney;
 		totalNumberOfGames++;
 
 		totalWin = 0;
@@ -1257,29 +1753,33 @@ class Simulation {
 
 		/* In brute force mode reels stops are not random. */
 		if (bruteForce == true) {
-			nextCombination(reelsStops);
+			nextCombination(reelsStops, fixedReels);
 		}
 
 		/* Spin is working even in brute force mode. */
 		clear();
-		int stops[] = new int[baseReels.length];
-		Simulation.spin(baseReels, stops);
+		spin(baseGameWrapped, baseGameScatters, stops);
 		// /*DEBUG*/ printView(System.err);
 		// /*DEBUG*/ System.err.println();
+		if (timer != null) {
+			timer.mark(Profiler.SPIN);
+		}
 
 		/* Do Burning Hot style wilds expansion. */
-		if (burningHotWilds == true) {
-			Simulation.burningHotSubstitution(view);
+		if (burningHotWilds == true && burningHotSubstitution(view) == true) {
+			scattersOnScreen = -1;
 		}
 
 		/* Do Lucky & Wild style wilds expansion. */
-		if (luckyAndWildWilds == true) {
-			Simulation.luckyAndWildSubstitution(view);
+		if (luckyAndWildWilds == true
+				&& luckyAndWildSubstitution(view) == true) {
+			scattersOnScreen = -1;
 		}
 
 		/* Do 20 Hot Blast style wilds expansion. */
-		if (twentyHotBlast == true) {
-			Simulation.twentyHotBlastSubstitution(view);
+		if (twentyHotBlast == true
+				&& twentyHotBlastSubstitution(view) == true) {
+			scattersOnScreen = -1;
 		}
 
 		/* Do Extra Stars style wilds expansion. */
@@ -1289,14 +1789,23 @@ class Simulation {
 			/* If there is expansion add extra free spin. */
 			if (expanded == true) {
 				freeGamesNumber++;
+				scattersOnScreen = -1;
 			}
 		}
 
+		if (timer != null) {
+			timer.mark(Profiler.EXPANSION);
+		}
+
 		/* Win accumulated by lines. */
-		int[][] linesStatistics = new int[LINES.size()][3];
-		int[][] scatterStatistics = new int[SCATTERS.size()][3];
-		int win = Simulation.linesWin(view, linesStatistics)
-				+ Simulation.scatterWin(view, scatterStatistics);
+		int win = linesWin(view, linesStatistics);
+		if (timer != null) {
+			timer.mark(Profiler.LINES);
+		}
+		win += scatterWin(view, scatterStatistics);
+		if (timer != null) {
+			timer.mark(Profiler.SCATTERS);
+		}
 		totalWin += win;
 
 		/* Collect statistics for the lines win. */
@@ -1319,10 +1828,7 @@ class Simulation {
 			baseGameSymbolsHitRate[statistics[0]][statistics[1]]++;
 		}
 
-		/*
-		 * Keep values for mathematical expectation and standard deviation
-		 * calculation.
-		 */
+		/* Update moments for mathematical expectation and deviation. */
 		baseOutcomes.add(win);
 
 		/* Add win to the statistics. */
@@ -1339,14 +1845,17 @@ class Simulation {
 
 		/* Count in the histogram. */
 		if (win > 0) {
-			Simulation.updateHistogram(baseWinsHistogram, win);
+			baseWinsHistogram.add(win);
+		}
+		if (timer != null) {
+			timer.mark(Profiler.STATISTICS);
 		}
 
 		/* Run extra wins after cells collapse in 20 Hot Blast mode. */
 		int counter = 1;
 		int multiplier = 2;
 		while (twentyHotBlast == true && win > 0) {
-			win = Simulation.singleCollapseGame(multiplier, stops);
+			win = singleCollapseGame(multiplier, stops);
 
 			/* Each collapse rise the multiplier by one. */
 			multiplier++;
@@ -1357,16 +1866,23 @@ class Simulation {
 		if (counter > maxCollapses) {
 			maxCollapses = counter;
 		}
+		if (profiler != null) {
+			profiler.games++;
+			profiler.collapses += counter - 1;
+		}
+		if (timer != null) {
+			timer.mark(Profiler.COLLAPSES);
+		}
 
 		/* Check for free games. */
-		Simulation.freeGamesSetup();
+		freeGamesSetup();
 
 		/* Play all free games. */
 		int singleRunFreeGames = 0;
 		while (freeGamesNumber > 0) {
 			totalNumberOfFreeGames++;
 
-			Simulation.singleFreeGame();
+			singleFreeGame();
 			singleRunFreeGames++;
 
 			freeGamesNumber--;
@@ -1374,58 +1890,492 @@ class Simulation {
 		if (singleRunFreeGames > maxSingleRunFreeGames) {
 			maxSingleRunFreeGames = singleRunFreeGames;
 		}
+		if (profiler != null) {
+			profiler.freeGames += singleRunFreeGames;
+		}
+		if (timer != null) {
+			timer.mark(Profiler.FREE_GAMES);
+		}
 
 		/* At the end of base game credit is taken. */
 		credit += totalWin;
 
+		/* Collapses are counted in the won money only. */
+		gameOutcomes.add(wonMoney - won);
+		if (timer != null) {
+			timer.mark(Profiler.STATISTICS);
+		}
+
 		/* Track of the balance should be done after every base game. */
 		balance.add(credit);
 	}
 
-	static void simulate(long numberOfSimulations,
+	/**
+	 * Half width of the total RTP confidence interval, calculated with the
+	 * normal approximation of the mean of the games total wins.
+	 * 
+	 * @param outcomes
+	 *            Moments of the games total wins.
+	 * 
+	 * @return Half width of the interval or infinity if there are not enough
+	 *         games.
+	 */
+	static double interval(Moments outcomes) {
+		if (outcomes.count() < 2 || totalBet <= 0) {
+			return Double.POSITIVE_INFINITY;
+		}
+
+		double z = new NormalDistribution()
+				.inverseCumulativeProbability(0.5D + confidence / 2D);
+		return z * outcomes.standardDeviation()
+				/ Math.sqrt(outcomes.count()) / totalBet;
+	}
+
+	/**
+	 * Print progress report line with the statistics of all working contexts.
+	 * 
+	 * @param game
+	 *            Number of games played so far.
+	 * @param numberOfSimulations
+	 *            Total number of games to be played.
+	 * @param workers
+	 *            Working simulation contexts.
+	 * @param meter
+	 *            Throughput meter or null if profiling is off.
+	 */
+	private static void printProgress(long game, long numberOfSimulations,
+			Simulation workers[], Profiler meter) {
+		long won = 0L;
+		long lost = 0L;
+		long base = 0L;
+		long free = 0L;
+		Moments outcomes = new Moments();
+		for (Simulation worker : workers) {
+			won += worker.wonMoney;
+			lost += worker.lostMoney;
+			base += worker.baseMoney;
+			free += worker.freeMoney;
+			outcomes.merge(worker.gameOutcomes);
+		}
+
+		try {
+			/* With target precision the number of games can be unlimited. */
+			if (numberOfSimulations == Long.MAX_VALUE) {
+				System.out.print(game);
+			} else {
+				System.out.print(game + " of " + numberOfSimulations);
+			}
+			System.out.print("\t");
+			System.out.print(String.format("  %6.2f",
+					100D * ((double) won / (double) lost)));
+			System.out.print("\t");
+			System.out.print(String.format("  %6.2f",
+					100D * ((double) base / (double) lost)));
+			System.out.print("\t");
+			System.out.print(String.format("  %6.2f",
+					100D * ((double) free / (double) lost)));
+			if (precision > 0) {
+				System.out.print("\t");
+				System.out.print(String.format("  %8.4f",
+						100D * interval(outcomes)));
+			}
+			if (meter != null) {
+				System.out.print(meter.rates(workers));
+			}
+		} catch (Exception e) {
+			System.err.println(e);
+		}
+		System.out.println();
+	}
+
+	/**
+	 * Print progress report line of the brute force partitions.
+	 * 
+	 * @param partition
+	 *            Number of completed partitions.
+	 * @param partitions
+	 *            Total number of partitions.
+	 * @param eta
+	 *            Estimated time to the end in milliseconds.
+	 * @param result
+	 *            Merged statistics of the completed partitions.
+	 * @param meter
+	 *            Throughput meter or null if profiling is off.
+	 */
+	private static void printProgress(long partition, long partitions,
+			long eta, Simulation result, Profiler meter) {
+		double lost = result.lostMoney;
+
+		eta /= 1000L;
+		System.out.print(partition + " of " + partitions);
+		System.out.print("\t");
+		System.out.print(
+				String.format("  %6.2f", 100D * result.wonMoney / lost));
+		System.out.print("\t");
+		System.out.print(
+				String.format("  %6.2f", 100D * result.baseMoney / lost));
+		System.out.print("\t");
+		System.out.print(
+				String.format("  %6.2f", 100D * result.freeMoney / lost));
+		System.out.print("\t");
+		System.out.print(String.format("%d:%02d:%02d", eta / 3600L,
+				eta / 60L % 60L, eta % 60L));
+		if (meter != null) {
+			System.out.print(meter.rates(new Simulation[] { result }));
+		}
+		System.out.println();
+	}
+
+	/**
+	 * Run the simulation and print the statistics. In brute force mode all
+	 * base game combinations are played instead of random games. If output
+	 * file is given the statistics are written in it too.
+	 * 
+	 * @param numberOfSimulations
+	 *            Number of base games to be played.
+	 * @param progressPrintOnIteration
+	 *            Number of games between progress reports.
+	 * 
+	 * @return Simulation context with the merged statistics.
+	 */
+	static Simulation simulate(long numberOfSimulations,
 			long progressPrintOnIteration) {
-		/* It it is first game the balance should be written before the game. */
-		balance.add(credit);
+		long start = System.nanoTime();
 
-		/* Simulation main loop. */
-		for (long g = 0L; g < numberOfSimulations; g++) {
-			if (verboseOutput == true && g == 0) {
-				System.out.println("Games\tRTP\tRTP(Base)\tRTP(Free)");
-			}
-
-			/* Print progress report. */
-			if (verboseOutput == true && g % progressPrintOnIteration == 0) {
-				try {
-					System.out.print(g + " of " + numberOfSimulations);
-					System.out.print("\t");
-					System.out.print(String.format("  %6.2f",
-							100D * ((double) wonMoney / (double) lostMoney)));
-					System.out.print("\t");
-					System.out.print(String.format("  %6.2f",
-							100D * ((double) baseMoney / (double) lostMoney)));
-					System.out.print("\t");
-					System.out.print(String.format("  %6.2f",
-							100D * ((double) freeMoney / (double) lostMoney)));
-				} catch (Exception e) {
-					System.err.println(e);
-				}
-				System.out.println();
-			}
+		Simulation result = null;
+		if (bruteForce == true) {
+			result = enumerate(progressPrintOnIteration);
+		} else {
+			result = sample(numberOfSimulations, progressPrintOnIteration);
+		}
 
-			Simulation.singleBaseGame();
+		/* The statistics are written in background while they are printed. */
+		Future<?> exported = null;
+		if (outputFile != null) {
+			exported = ResultsWriter.start(outputFile, result, outputBalance);
 		}
 
 		System.out.println(
 				"********************************************************************************");
-		Simulation.printStatistics();
+		result.printStatistics();
+		if (result.profiler != null) {
+			result.profiler.wall = System.nanoTime() - start;
+			result.profiler.print();
+		}
 		System.out.println(
 				"********************************************************************************");
+
+		if (exported != null) {
+			try {
+				exported.get();
+			} catch (InterruptedException | ExecutionException e) {
+				System.err.println(e);
+				System.exit(1);
+			}
+		}
+		result.balance.close();
+		for (Balance other : result.otherBalances) {
+			other.close();
+		}
+
+		return result;
+	}
+
+	/**
+	 * Play random games. Games are split between independent simulation
+	 * contexts, each one played by its own thread, and the statistics are
+	 * merged at the end. If checkpoint file is given the state of all contexts
+	 * is stored after each round and if the simulation is resumed it continues
+	 * from the stored state.
+	 * 
+	 * @param numberOfSimulations
+	 *            Number of base games to be played.
+	 * @param progressPrintOnIteration
+	 *            Number of games between progress reports.
+	 * 
+	 * @return Simulation context with the merged statistics.
+	 */
+	private static Simulation sample(long numberOfSimulations,
+			long progressPrintOnIteration) {
+		int threads = Math.max(1, numberOfThreads);
+
+		/* Each worker has its own game state, statistics and random stream. */
+		Profiler meter = profile == true ? new Profiler() : null;
+		Simulation workers[] = new Simulation[threads];
+		if (resumed != null) {
+			workers = resumed.workers;
+		} else {
+			RandomGenerator streams[] = Util.prngType.streams(Util.seed,
+					threads);
+			for (int w = 0; w < workers.length; w++) {
+				workers[w] = new Simulation();
+				workers[w].prng = streams[w];
+			}
+		}
+
+		/* Full balance curve is spilled in a file. */
+		for (int w = 0; w < workers.length && balanceFile != null; w++) {
+			try {
+				workers[w].balance.spill(workers.length == 1 ? balanceFile
+						: balanceFile + "." + w);
+			} catch (IOException e) {
+				System.err.println(e);
+			}
+		}
+
+		/*
+		 * It it is first game the balance should be written before the game.
+		 */
+		for (Simulation worker : workers) {
+			worker.balance.add(worker.credit);
+		}
+
+		/*
+		 * Games are played in rounds in order progress to be reported,
+		 * checkpoints to be stored, precision to be checked and snapshots to
+		 * be published.
+		 */
+		long round = numberOfSimulations;
+		if ((verboseOutput == true || checkpointFile != null || precision > 0
+				|| monitor != null) && progressPrintOnIteration > 0) {
+			round = progressPrintOnIteration;
+		}
+
+		/* The resumed simulation continues with the same rounds. */
+		long start = 0L;
+		if (resumed != null) {
+			numberOfSimulations = resumed.numberOfSimulations;
+			round = resumed.round;
+			start = resumed.games;
+		}
+
+		/* Checkpoints are stored in background. */
+		ExecutorService writer = Executors.newSingleThreadExecutor();
+		Future<?> stored = null;
+
+		/* Simulation main loop. */
+		ExecutorService pool = Executors.newFixedThreadPool(workers.length);
+		try {
+			for (long g = start; g < numberOfSimulations; g += round) {
+				if (verboseOutput == true && g == start) {
+					System.out.println("PRNG:\t" + Util.prngType + "\t"
+							+ Util.seed);
+					System.out.println("Games\tRTP\tRTP(Base)\tRTP(Free)"
+							+ (precision > 0 ? "\t+/-RTP" : "")
+							+ (profile == true ? "\tGames/s\tFree/s" : ""));
+				}
+
+				/* Print progress report. */
+				if (verboseOutput == true) {
+					printProgress(g, numberOfSimulations, workers, meter);
+				}
+
+				/* Split the round between the workers. */
+				long games = Math.min(round, numberOfSimulations - g);
+				List<Future<?>> futures = new ArrayList<Future<?>>();
+				for (int w = 0; w < workers.length; w++) {
+					final Simulation worker = workers[w];
+					final long share = games / workers.length
+							+ (w < games % workers.length ? 1 : 0);
+
+					futures.add(pool.submit(() -> {
+						for (long i = 0L; i < share; i++) {
+							worker.singleBaseGame();
+						}
+					}));
+				}
+
+				/* Wait for all workers to finish the round. */
+				for (Future<?> future : futures) {
+					future.get();
+				}
+
+				/* Stop when the target precision is reached. */
+				boolean done = g + games >= numberOfSimulations;
+				if (precision > 0) {
+					Moments outcomes = new Moments();
+					for (Simulation worker : workers) {
+						outcomes.merge(worker.gameOutcomes);
+					}
+
+					if (interval(outcomes) <= precision) {
+						done = true;
+					}
+				}
+
+				/* Publish snapshot and check for stop request. */
+				if (monitor != null) {
+					monitor.publish(numberOfSimulations, workers);
+
+					if (monitor.stopped() == true) {
+						done = true;
+					}
+				}
+
+				/*
+				 * The state is serialized while the workers wait, but if the
+				 * previous checkpoint is still not stored this one is skipped.
+				 * The final state is never skipped.
+				 */
+				if (checkpointFile != null && stored != null && done == true) {
+					stored.get();
+				}
+				if (checkpointFile != null
+						&& (stored == null || stored.isDone() == true)) {
+					final byte[] data = Checkpoint.encode(numberOfSimulations,
+							g + games, round, workers);
+					final String file = checkpointFile;
+					stored = writer.submit(() -> Checkpoint.store(file, data));
+				}
+
+				if (done == true) {
+					break;
+				}
+			}
+		} catch (InterruptedException | ExecutionException | IOException e) {
+			/* Games of the failed worker are missing, so there is no report. */
+			System.err.println(e);
+			System.exit(1);
+		} finally {
+			pool.shutdown();
+			writer.shutdown();
+		}
+
+		/* The last checkpoint should be complete before the exit. */
+		try {
+			writer.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			System.err.println(e);
+		}
+
+		/* Collect statistics from all workers. */
+		Simulation result = workers[0];
+		for (int w = 1; w < workers.length; w++) {
+			result.merge(workers[w]);
+			result.otherBalances.add(workers[w].balance);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Play all base game combinations. Combinations are partitioned by the
+	 * stops of the first one or two reels. Each partition is played in its own
+	 * simulation context on a fork-join pool and the statistics are merged as
+	 * soon as the partition is done.
+	 * 
+	 * @param progressPrintOnIteration
+	 *            Number of combinations between progress reports.
+	 * 
+	 * @return Simulation context with the merged statistics.
+	 */
+	private static Simulation enumerate(long progressPrintOnIteration) {
+		int threads = Math.max(1, numberOfThreads);
+
+		/* Fix so many leading reels that all threads have enough work. */
+		int fixed = 0;
+		long partitions = 1L;
+		while (fixed < 2 && fixed < baseReels.length - 1
+				&& partitions < 16L * threads) {
+			partitions *= baseReels[fixed].length;
+			fixed++;
+		}
+
+		/* Combinations of the reels which are not fixed. */
+		long combinations = 1L;
+		for (int i = fixed; i < baseReels.length; i++) {
+			combinations *= baseReels[i].length;
+		}
+
+		final int reels = fixed;
+		final long size = combinations;
+
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		CompletionService<Simulation> service = new ExecutorCompletionService<Simulation>(
+				pool);
+		for (long p = 0; p < partitions; p++) {
+			final long partition = p;
+
+			service.submit(() -> {
+				Simulation unit = new Simulation();
+
+				/* Stops of the fixed reels are digits of the partition. */
+				long rest = partition;
+				for (int i = 0; i < reels; i++) {
+					unit.reelsStops[i] = (int) (rest % baseReels[i].length);
+					rest /= baseReels[i].length;
+				}
+
+				/* Minus one is needed first combination to start from zero. */
+				unit.fixedReels = reels;
+				unit.reelsStops[reels] = -1;
+
+				for (long c = 0L; c < size; c++) {
+					unit.singleBaseGame();
+				}
+
+				return unit;
+			});
+		}
+
+		if (verboseOutput == true) {
+			System.out.println("Partitions\tRTP\tRTP(Base)\tRTP(Free)\tETA"
+					+ (profile == true ? "\tGames/s\tFree/s" : ""));
+		}
+
+		/* Merge partitions in order of their completion. */
+		Profiler meter = profile == true ? new Profiler() : null;
+		Simulation result = new Simulation();
+		long start = System.currentTimeMillis();
+		long next = progressPrintOnIteration;
+		try {
+			for (long p = 1; p <= partitions; p++) {
+				result.merge(service.take().get());
+
+				/* Publish snapshot and check for stop request. */
+				if (monitor != null) {
+					monitor.publish(partitions * size, result);
+
+					if (monitor.stopped() == true) {
+						break;
+					}
+				}
+
+				/* Print progress report. */
+				if (verboseOutput == true && progressPrintOnIteration > 0
+						&& p * size >= next) {
+					long eta = (System.currentTimeMillis() - start)
+							* (partitions - p) / p;
+					printProgress(p, partitions, eta, result, meter);
+
+					next = (p * size / progressPrintOnIteration + 1)
+							* progressPrintOnIteration;
+				}
+			}
+		} catch (InterruptedException | ExecutionException e) {
+			/* Combinations of the failed partition are missing. */
+			System.err.println(e);
+			System.exit(1);
+		} finally {
+			pool.shutdownNow();
+		}
+
+		return result;
 	}
 
 	/**
 	 * Print simulation statistics.
 	 */
-	static void printStatistics() {
+	void printStatistics() {
+		printMoneyStatistics();
+		printWinsStatistics();
+		printSymbolsStatistics();
+	}
+
+	/**
+	 * Print money, RTP and hit frequency statistics.
+	 */
+	void printMoneyStatistics() {
 		System.out.println("Won money:\t" + wonMoney);
 		System.out.println("Lost money:\t" + lostMoney);
 		System.out.println("Total Number of Games:\t" + totalNumberOfGames);
@@ -1439,6 +2389,12 @@ class Simulation {
 		System.out.println("Free Game RTP:\t"
 				+ ((double) freeMoney / (double) lostMoney) + "\t\t"
 				+ (100.0D * (double) freeMoney / (double) lostMoney) + "%");
+		if (bruteForce == false && gameOutcomes.count() > 1) {
+			double interval = interval(gameOutcomes);
+			System.out.println("Total RTP " + (100.0D * confidence)
+					+ "% Confidence Interval:\t+/-" + interval + "\t\t+/-"
+					+ (100.0D * interval) + "%");
+		}
 		System.out.println();
 		System.out.println("Hit Frequency in Base Game:\t"
 				+ ((double) baseGameHitRate / (double) totalNumberOfGames)
@@ -1467,7 +2423,12 @@ class Simulation {
 						/ (double) totalNumberOfFreeGameStarts)
 				+ "%");
 		System.out.println();
+	}
 
+	/**
+	 * Print max wins, moments and histograms of the wins.
+	 */
+	void printWinsStatistics() {
 		System.out.println("Max Win in Base Game:\t" + baseMaxWin);
 		System.out.println("Max Win in Free Game:\t" + freeMaxWin);
 		System.out.println("Max Number of Free Games in Single Run:\t"
@@ -1475,56 +2436,20 @@ class Simulation {
 		System.out.println(
 				"Max Number of Collapses in Single Run:\t" + maxCollapses);
 		System.out.println();
-		System.out.print("Base Game Win Mean:\t");
-		/* Mean */ {
-			double mean = 0;
-			for (Integer value : baseOutcomes) {
-				mean += value;
-			}
-			mean /= baseOutcomes.size() != 0 ? baseOutcomes.size() : 1;
-			System.out.println(mean);
-		}
-		System.out.print("Base Game Win Standard Deviation:\t");
-		/* Standard Deviation */ {
-			double mean = 0;
-			for (Integer value : baseOutcomes) {
-				mean += value;
-			}
-			mean /= baseOutcomes.size() != 0 ? baseOutcomes.size() : 1;
-
-			double deviation = 0;
-			for (Integer value : baseOutcomes) {
-				deviation += (value - mean) * (value - mean);
-			}
-			deviation /= baseOutcomes.size() != 0 ? baseOutcomes.size() : 1;
-			deviation = Math.sqrt(deviation);
-			System.out.println(deviation);
-		}
-		System.out.print("Free Games Win Mean:\t");
-		/* Mean */ {
-			double mean = 0;
-			for (Integer value : freeOutcomes) {
-				mean += value;
-			}
-			mean /= freeOutcomes.size() != 0 ? freeOutcomes.size() : 1;
-			System.out.println(mean);
-		}
-		System.out.print("Free Games Win Standard Deviation:\t");
-		/* Standard Deviation */ {
-			double mean = 0;
-			for (Integer value : freeOutcomes) {
-				mean += value;
-			}
-			mean /= freeOutcomes.size() != 0 ? freeOutcomes.size() : 1;
-
-			double deviation = 0;
-			for (Integer value : freeOutcomes) {
-				deviation += (value - mean) * (value - mean);
-			}
-			deviation /= freeOutcomes.size() != 0 ? freeOutcomes.size() : 1;
-			deviation = Math.sqrt(deviation);
-			System.out.println(deviation);
-		}
+		System.out.println("Base Game Win Mean:\t" + baseOutcomes.mean());
+		System.out.println("Base Game Win Standard Deviation:\t"
+				+ baseOutcomes.standardDeviation());
+		System.out.println(
+				"Base Game Win Skewness:\t" + baseOutcomes.skewness());
+		System.out.println(
+				"Base Game Win Kurtosis:\t" + baseOutcomes.kurtosis());
+		System.out.println("Free Games Win Mean:\t" + freeOutcomes.mean());
+		System.out.println("Free Games Win Standard Deviation:\t"
+				+ freeOutcomes.standardDeviation());
+		System.out.println(
+				"Free Games Win Skewness:\t" + freeOutcomes.skewness());
+		System.out.println(
+				"Free Games Win Kurtosis:\t" + freeOutcomes.kurtosis());
 		System.out.println();
 		System.out.println("Base Game Wins Histogram:");
 		/* Histogram. */ {
@@ -1535,13 +2460,7 @@ class Simulation {
 			System.out.println();
 			for (int left = 0, right = initialBin; right < baseMaxWin; left = right, right += right
 					+ binIncrement) {
-				double sum = 0;
-				for (int value = left; value < right; value++) {
-					if (baseWinsHistogram.containsKey(value) == false) {
-						continue;
-					}
-					sum += baseWinsHistogram.get(value);
-				}
+				double sum = baseWinsHistogram.count(left, right);
 				System.out.print(sum + "\t");
 			}
 		}
@@ -1555,19 +2474,18 @@ class Simulation {
 			System.out.println();
 			for (int left = 0, right = initialBin; right < freeMaxWin; left = right, right += right
 					+ binIncrement) {
-				double sum = 0;
-				for (int value = left; value < right; value++) {
-					if (freeWinsHistogram.containsKey(value) == false) {
-						continue;
-					}
-					sum += freeWinsHistogram.get(value);
-				}
+				double sum = freeWinsHistogram.count(left, right);
 				System.out.print(sum + "\t");
 			}
 		}
 		System.out.println();
 		System.out.println();
+	}
 
+	/**
+	 * Print statistics of the symbols wins.
+	 */
+	void printSymbolsStatistics() {
 		System.out.println("Base Game Symbols RTP:");
 		System.out.print("\t");
 		for (int i = 0; i < baseSymbolMoney.length; i++) {
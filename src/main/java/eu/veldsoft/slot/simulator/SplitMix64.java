@@ -0,0 +1,123 @@
+package eu.veldsoft.slot.simulator;
+
+/**
+ * SplitMix64 generator (G. Steele, D. Lea, C. Flood, Fast Splittable
+ * Pseudorandom Number Generators, 2014). It is used as it is and for seeding
+ * of the other generators.
+ * 
+ * @author Todor Balabanov
+ */
+final class SplitMix64 extends StreamGenerator {
+	/** Serial version for the checkpoints. */
+	private static final long serialVersionUID = 1L;
+
+	/** Default increment, the odd integer closest to 2^64 / golden ratio. */
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+	/** Internal state. */
+	private long seed;
+
+	/** Increment of the state. It is always odd. */
+	private long gamma;
+
+	/**
+	 * Constructor with a seed.
+	 * 
+	 * @param seed
+	 *            Initial state.
+	 */
+	SplitMix64(long seed) {
+		this(seed, GOLDEN_GAMMA);
+	}
+
+	/**
+	 * Constructor with a seed and an increment.
+	 * 
+	 * @param seed
+	 *            Initial state.
+	 * @param gamma
+	 *            Odd increment.
+	 */
+	private SplitMix64(long seed, long gamma) {
+		this.seed = seed;
+		this.gamma = gamma;
+	}
+
+	/**
+	 * Finalizing mix function of the state.
+	 * 
+	 * @param z
+	 *            Value to mix.
+	 * 
+	 * @return Mixed value.
+	 */
+	static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Mix function for a new increment with enough bit transitions.
+	 * 
+	 * @param z
+	 *            Value to mix.
+	 * 
+	 * @return Odd increment.
+	 */
+	private static long mixGamma(long z) {
+		z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+		z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+		z = (z ^ (z >>> 33)) | 1L;
+
+		if (Long.bitCount(z ^ (z >>> 1)) < 24) {
+			z ^= 0xAAAAAAAAAAAAAAAAL;
+		}
+
+		return z;
+	}
+
+	/**
+	 * Create new generator with statistically independent sequence.
+	 * 
+	 * @return Generator for a new stream.
+	 */
+	SplitMix64 split() {
+		return new SplitMix64(nextLong(), mixGamma(nextLong()));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long nextLong() {
+		seed += gamma;
+		return mix(seed);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int nextInt() {
+		return (int) (nextLong() >>> 32);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double nextDouble() {
+		return (nextLong() >>> 11) * 0x1.0p-53;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setSeed(long seed) {
+		this.seed = seed;
+		this.gamma = GOLDEN_GAMMA;
+		clear();
+	}
+}
@@ -0,0 +1,82 @@
+package eu.veldsoft.slot.simulator;
+
+import org.apache.commons.math3.exception.NotStrictlyPositiveException;
+import org.apache.commons.math3.random.BitsStreamGenerator;
+
+/**
+ * Base of the small state pseudo-random number generators used as independent
+ * streams in the parallel simulation.
+ * 
+ * @author Todor Balabanov
+ */
+abstract class StreamGenerator extends BitsStreamGenerator {
+	/** Serial version for the checkpoints. */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Next 32 random bits.
+	 * 
+	 * @return Random integer.
+	 */
+	@Override
+	public abstract int nextInt();
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected int next(int bits) {
+		return nextInt() >>> (32 - bits);
+	}
+
+	/**
+	 * Uniform integer in a range by multiplication instead of division (D.
+	 * Lemire, Fast Random Integer Generation in an Interval, 2019). Division
+	 * is needed only when the rejection threshold should be checked.
+	 * 
+	 * @param n
+	 *            Upper bound (exclusive).
+	 * 
+	 * @return Random integer between zero and the bound.
+	 */
+	@Override
+	public int nextInt(int n) {
+		if (n <= 0) {
+			throw new NotStrictlyPositiveException(n);
+		}
+
+		long product = (nextInt() & 0xFFFFFFFFL) * n;
+		long low = product & 0xFFFFFFFFL;
+
+		/* Reject the values which will break the uniformity. */
+		if (low < n) {
+			long threshold = (0x100000000L - n) % n;
+			while (low < threshold) {
+				product = (nextInt() & 0xFFFFFFFFL) * n;
+				low = product & 0xFFFFFFFFL;
+			}
+		}
+
+		return (int) (product >>> 32);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setSeed(int seed) {
+		setSeed((long) seed);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setSeed(int[] seed) {
+		long value = 0L;
+		for (int i = 0; i < seed.length; i++) {
+			value = value * 0x9E3779B97F4A7C15L + seed[i];
+		}
+		setSeed(value);
+	}
+}
@@ -1,7 +1,5 @@
 package eu.veldsoft.slot.simulator;
 
-import javafx.scene.image.Image;
-
 /**
  * Describe single symbol from the paytable.
  * 
@@ -12,9 +10,24 @@ final class Symbol {
 		NONE, REGULAR, SCATTER, WILD, EXTEND, FREE, BONUS
 	};
 
+	/** Trait flag of the wild symbols. */
+	static final int WILD = 1;
+
+	/** Trait flag of the extend wild symbols. */
+	static final int EXTEND = 1 << 1;
+
+	/** Trait flag of the scatter symbols. */
+	static final int SCATTER = 1 << 2;
+
+	/** Trait flag of the symbols which trigger free spins. */
+	static final int FREE = 1 << 3;
+
+	/** Trait flag of the symbols which trigger bonus game. */
+	static final int BONUS = 1 << 4;
+
 	int index;
 	String name;
 	Type type;
 	int pays[];
-	Image image;
+	byte picture[];
 }
@@ -1,6 +1,5 @@
 package eu.veldsoft.slot.simulator;
 
-import org.apache.commons.math3.random.MersenneTwister;
 import org.apache.commons.math3.random.RandomGenerator;
 
 /**
@@ -9,8 +8,14 @@ import org.apache.commons.math3.random.RandomGenerator;
  * @author Todor Balabanov
  */
 final class Util {
+	/** Type of the pseudo-random number generators. */
+	static Prng prngType = Prng.XOROSHIRO;
+
+	/** Seed of the pseudo-random number generators. */
+	static long seed = System.nanoTime();
+
 	/** Pseudo-random number generator. */
-	static final RandomGenerator PRNG = new MersenneTwister();
+	static RandomGenerator PRNG = prngType.streams(seed, 1)[0];
 
 	/** Index of the none symbol in the array of symbols. */
 	static final Symbol NO_SYMBOL = new Symbol();
@@ -21,6 +26,6 @@ final class Util {
 		NO_SYMBOL.name = "";
 		NO_SYMBOL.type = Symbol.Type.NONE;
 		NO_SYMBOL.pays = null;
-		NO_SYMBOL.image = null;
+		NO_SYMBOL.picture = null;
 	}
 }
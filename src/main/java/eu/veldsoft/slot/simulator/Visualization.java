@@ -0,0 +1,830 @@
+/*==============================================================================
+*                                                                              *
+* Fruit Machine Simulator with Excel Interface version 1.0.0                   *
+* Copyrights (C) 2017-2020 Velbazhd Software LLC                               *
+*                                                                              *
+* developed by Todor Balabanov ( todor.balabanov@gmail.com )                   *
+* Sofia, Bulgaria                                                              *
+*                                                                              *
+* This program is free software: you can redistribute it and/or modify         *
+* it under the terms of the GNU General Public License as published by         *
+* the Free Software Foundation, either version 3 of the License, or            *
+* (at your option) any later version.                                          *
+*                                                                              *
+* This program is distributed in the hope that it will be useful,              *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of               *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the                *
+* GNU General Public License for more details.                                 *
+*                                                                              *
+* You should have received a copy of the GNU General Public License            *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.         *
+*                                                                              *
+==============================================================================*/
+
+package eu.veldsoft.slot.simulator;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import javafx.scene.Scene;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.chart.LineChart;
+import javafx.scene.chart.NumberAxis;
+import javafx.scene.chart.ScatterChart;
+import javafx.scene.chart.XYChart;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Alert.AlertType;
+import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.TextField;
+import javafx.scene.image.Image;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.StackPane;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+import javafx.stage.Stage;
+
+/**
+ * Graphic interface of the simulator. It is separated from the command line
+ * entry point, so the simulation runs do not load JavaFX at all.
+ * 
+ * @author Todor Balabanov
+ */
+public class Visualization extends Application {
+	/** Simulation context used in the visualization mode. */
+	private static Simulation simulation = null;
+
+	/** Min time between two screen updates of running games in nanoseconds. */
+	private static final long UPDATE_INTERVAL = 50_000_000L;
+
+	/** Width of the cells borders on the game screen. */
+	private static final double BORDER = 5D;
+
+	/**
+	 * Copy of the game screen. It is taken by the thread which plays the games
+	 * and drawn by the application thread.
+	 */
+	private static final class Screen {
+		/** Symbols codes on the screen. */
+		final int view[][];
+
+		/** Cells which took part of the wins. */
+		final boolean winners[][];
+
+		/** Wins of the lines. */
+		final int winnerLines[];
+
+		/**
+		 * Copy the screen of the simulation.
+		 */
+		Screen() {
+			view = new int[simulation.view.length][];
+			winners = new boolean[simulation.winners.length][];
+			for (int i = 0; i < view.length; i++) {
+				view[i] = simulation.view[i].clone();
+				winners[i] = simulation.winners[i].clone();
+			}
+			winnerLines = simulation.winnerLines.clone();
+		}
+	}
+
+	/**
+	 * Progress of games played in background. It is created by the worker and
+	 * shown by the application thread.
+	 */
+	private static final class Progress {
+		/** Credit after the last game. */
+		final int credit;
+
+		/** Total win of the last game. */
+		final int totalWin;
+
+		/** Screen of the last game. */
+		final Screen screen;
+
+		/** Finished run flag. */
+		final boolean done;
+
+		/**
+		 * Take progress of the running games.
+		 *
+		 * @param done
+		 *            Finished run flag.
+		 */
+		Progress(boolean done) {
+			this.credit = simulation.credit;
+			this.totalWin = simulation.totalWin;
+			this.screen = new Screen();
+			this.done = done;
+		}
+	}
+
+	/** Background worker of the long game runs. */
+	private final ExecutorService worker = Executors
+			.newSingleThreadExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "Games");
+				thread.setDaemon(true);
+				return thread;
+			});
+
+	/** Cancel request of the running games. */
+	private final AtomicBoolean cancelled = new AtomicBoolean(false);
+
+	/** The latest progress which is still not shown. */
+	private final AtomicReference<Progress> pending = new AtomicReference<Progress>();
+
+	/** Credit after every game of the chart. */
+	private final Pyramid trajectory = new Pyramid();
+
+	/** Axis of the games in the balance chart. */
+	private NumberAxis xAxis = null;
+
+	/** Series of the shown part of the credit trajectory. */
+	private XYChart.Series<Number, Number> balanceSeries = null;
+
+	/** Series of the zero credit level. */
+	private XYChart.Series<Number, Number> zeroSeries = null;
+
+	/** The chart shows all games if true and zoomed part otherwise. */
+	private boolean follow = true;
+
+	/** Screen of the last game or null if there is no game yet. */
+	private Screen screen = null;
+
+	/** Symbols images decoded on the first request. */
+	private static final Map<Symbol, Image> IMAGES = new HashMap<Symbol, Image>();
+
+	/**
+	 * Symbol image decoded on the first request.
+	 * 
+	 * @param symbol
+	 *            Symbol to be shown.
+	 * 
+	 * @return Image of the symbol or null if there is no picture.
+	 */
+	private static Image image(Symbol symbol) {
+		if (IMAGES.containsKey(symbol) == false && symbol.picture != null) {
+			IMAGES.put(symbol,
+					new Image(new ByteArrayInputStream(symbol.picture)));
+		}
+
+		return IMAGES.get(symbol);
+	}
+
+	/**
+	 * Graphic interface run. The game structure should be loaded and
+	 * initialized before the call.
+	 * 
+	 * @param args
+	 *            Command line arguments.
+	 */
+	static void visualize(String[] args) {
+		simulation = new Simulation();
+		Application.launch(args);
+	}
+
+	/**
+	 * Pass the progress to the application thread. If the previous progress is
+	 * still not shown it is replaced by the new one, so the screen updates
+	 * never pile up.
+	 *
+	 * @param progress
+	 *            Progress of the games.
+	 * @param show
+	 *            Progress handler called on the application thread.
+	 */
+	private void publish(Progress progress, Consumer<Progress> show) {
+		if (pending.getAndSet(progress) == null) {
+			Platform.runLater(() -> show.accept(pending.getAndSet(null)));
+		}
+	}
+
+	/**
+	 * Play games in background. Progress is published not more often than
+	 * the update interval and at the end of the run.
+	 *
+	 * @param bills
+	 *            Bills loading simulation if true and auto run otherwise.
+	 * @param runs
+	 *            Number of auto run games.
+	 * @param show
+	 *            Progress handler called on the application thread.
+	 */
+	private void play(boolean bills, long runs, Consumer<Progress> show) {
+		cancelled.set(false);
+
+		worker.submit(() -> {
+			long next = System.nanoTime() + UPDATE_INTERVAL;
+
+			try {
+				if (bills == true) {
+					for (int load : Simulation.coins) {
+						if (cancelled.get() == true) {
+							break;
+						}
+
+						simulation.credit += load;
+						simulation.balance.add(simulation.credit);
+
+						/* Play loaded bill. */
+						while (simulation.credit > Simulation.totalBet
+								&& cancelled.get() == false) {
+							simulation.singleBaseGame();
+							trajectory.add(simulation.credit);
+
+							if (System.nanoTime() >= next) {
+								publish(new Progress(false), show);
+								next = System.nanoTime() + UPDATE_INTERVAL;
+							}
+						}
+					}
+
+					simulation.clear();
+				} else {
+					for (long i = 0; i < runs
+							&& simulation.credit > Simulation.totalBet
+							&& cancelled.get() == false; i++) {
+						simulation.singleBaseGame();
+						trajectory.add(simulation.credit);
+
+						if (System.nanoTime() >= next) {
+							publish(new Progress(false), show);
+							next = System.nanoTime() + UPDATE_INTERVAL;
+						}
+					}
+				}
+			} finally {
+				publish(new Progress(true), show);
+			}
+		});
+	}
+
+	/**
+	 * Show the visible part of the credit trajectory. Each pixel of the games
+	 * axis gets the min and the max credit of its games, so the number of
+	 * points does not depend on the number of games.
+	 */
+	private void refresh() {
+		int size = trajectory.size();
+
+		if (follow == true) {
+			xAxis.setLowerBound(0);
+			xAxis.setUpperBound(Math.max(1, size));
+		}
+		xAxis.setTickUnit(Math.max(1D,
+				(xAxis.getUpperBound() - xAxis.getLowerBound()) / 10D));
+
+		/* Game number is one more than the index of its credit. */
+		int from = (int) Math.max(0, Math.floor(xAxis.getLowerBound()) - 1);
+		int to = (int) Math.min(size, Math.ceil(xAxis.getUpperBound()));
+		int pixels = Math.max(1, (int) xAxis.getWidth());
+
+		List<XYChart.Data<Number, Number>> points = new ArrayList<XYChart.Data<Number, Number>>();
+		int range[] = new int[2];
+		for (long p = 0, count = Math.min(pixels, to - from); p < count; p++) {
+			int left = (int) (from + (to - from) * p / count);
+			int right = (int) (from + (to - from) * (p + 1) / count);
+
+			trajectory.range(left, right, range);
+			points.add(new XYChart.Data<Number, Number>(left + 1, range[0]));
+			if (range[1] != range[0]) {
+				points.add(
+						new XYChart.Data<Number, Number>(left + 1, range[1]));
+			}
+		}
+		balanceSeries.getData().setAll(points);
+
+		points = new ArrayList<XYChart.Data<Number, Number>>();
+		points.add(new XYChart.Data<Number, Number>(xAxis.getLowerBound(), 0));
+		points.add(new XYChart.Data<Number, Number>(xAxis.getUpperBound(), 0));
+		zeroSeries.getData().setAll(points);
+	}
+
+	@Override
+	public void start(Stage stage) throws Exception {
+		/* Cells are as big as the biggest symbol image. */
+		double cellWidth = 2 * BORDER;
+		double cellHeight = 2 * BORDER;
+		for (Symbol symbol : Simulation.SYMBOLS) {
+			Image image = image(symbol);
+			if (image != null) {
+				cellWidth = Math.max(cellWidth, image.getWidth() + 2 * BORDER);
+				cellHeight = Math.max(cellHeight,
+						image.getHeight() + 2 * BORDER);
+			}
+		}
+
+		/* Setup initial screen. */
+		final int cells[][] = new int[simulation.view.length][];
+		for (int i = 0, k = 0; i < cells.length; i++) {
+			cells[i] = new int[simulation.view[i].length];
+			for (int j = 0; j < cells[i].length; j++, k++) {
+				cells[i][j] = Simulation.SYMBOLS
+						.get(k % Simulation.SYMBOLS.size()).index;
+			}
+		}
+
+		Canvas screenCanvas = new Canvas(cellWidth * cells.length,
+				cellHeight * (cells.length > 0 ? cells[0].length : 0));
+
+		/* Game indicators. */
+		TextField creditText = new TextField();
+		TextField totalBetText = new TextField();
+		TextField singleWinText = new TextField();
+		TextField totalWinText = new TextField();
+		creditText.setPrefWidth(80);
+		creditText.setMaxWidth(80);
+		totalBetText.setPrefWidth(80);
+		totalBetText.setMaxWidth(80);
+		singleWinText.setPrefWidth(80);
+		singleWinText.setMaxWidth(80);
+		totalWinText.setPrefWidth(80);
+		totalWinText.setMaxWidth(80);
+
+		/* Define series which will be visualized. */
+		XYChart.Series<Number, Number> loadSeries = new XYChart.Series<Number, Number>();
+		XYChart.Series<Number, Number> clearSeries = new XYChart.Series<Number, Number>();
+		balanceSeries = new XYChart.Series<Number, Number>();
+		zeroSeries = new XYChart.Series<Number, Number>();
+
+		/* Buttons which are disabled while games are played in background. */
+		List<Button> actions = new ArrayList<Button>();
+		Button cancelButton = new Button("Cancel");
+		cancelButton.setDisable(true);
+		cancelButton.setOnAction(value -> {
+			cancelled.set(true);
+		});
+
+		/* Show progress of games played in background. */
+		Consumer<Progress> progress = update -> {
+			creditText.setText("" + update.credit);
+			totalBetText.setText("" + Simulation.totalBet);
+			singleWinText.setText("0");
+			totalWinText.setText("" + update.totalWin);
+
+			refresh();
+			screen = update.screen;
+
+			if (update.done == true) {
+				for (Button button : actions) {
+					button.setDisable(false);
+				}
+				cancelButton.setDisable(true);
+			}
+		};
+
+		/* Run single game. */
+		Button spinButton = new Button("SPIN");
+		spinButton.setOnAction(value -> {
+			/* Check for available balance. */
+			if (Simulation.totalBet > simulation.credit) {
+				(new Alert(AlertType.INFORMATION, "Insufficient credit!"))
+						.show();
+				return;
+			}
+
+			simulation.singleBaseGame();
+
+			/* Update financial information. */
+			creditText.setText("" + simulation.credit);
+			totalBetText.setText("" + Simulation.totalBet);
+			singleWinText.setText("0");
+			totalWinText.setText("" + simulation.totalWin);
+
+			trajectory.add(simulation.credit);
+			refresh();
+
+			/* The screen is drawn on the next frame. */
+			screen = new Screen();
+		});
+
+		creditText.setEditable(false);
+		totalBetText.setEditable(false);
+		singleWinText.setEditable(false);
+		totalWinText.setEditable(false);
+
+		/* Setup chart visual component. */
+		ScatterChart<Number, Number> creditChart;
+		LineChart<Number, Number> balanceChart;
+		NumberAxis yAxis;
+		creditChart = new ScatterChart<Number, Number>(xAxis = new NumberAxis(),
+				yAxis = new NumberAxis());
+		creditChart.setLegendVisible(false);
+		creditChart.setTitle("Game Balance");
+		creditChart.getData().add(loadSeries);
+		creditChart.getData().add(clearSeries);
+		balanceChart = new LineChart<Number, Number>(xAxis, yAxis);
+		balanceChart.setLegendVisible(false);
+		balanceChart.setTitle("Game Balance");
+		balanceChart.setCreateSymbols(false);
+		xAxis.setLabel("Number of Games");
+		yAxis.setLabel("Credit");
+		loadSeries.setName("Load Credit");
+		clearSeries.setName("Clear Credit");
+		balanceSeries.setName("Credit Balance");
+		zeroSeries.setName("Zero Level");
+		balanceChart.getData().add(balanceSeries);
+		balanceChart.getData().add(loadSeries);
+		balanceChart.getData().add(clearSeries);
+		balanceChart.getData().add(zeroSeries);
+
+		/* Games axis is set by the shown part of the trajectory. */
+		xAxis.setAutoRanging(false);
+		xAxis.widthProperty().addListener(
+				(observable, before, after) -> refresh());
+		refresh();
+
+		/* Zoom around the mouse with the wheel and show all on double click. */
+		balanceChart.setOnScroll(event -> {
+			double lower = xAxis.getLowerBound();
+			double upper = xAxis.getUpperBound();
+			double center = xAxis.getValueForDisplay(
+					xAxis.sceneToLocal(event.getSceneX(), event.getSceneY())
+							.getX())
+					.doubleValue();
+			double factor = event.getDeltaY() > 0 ? 0.8D : 1.25D;
+
+			lower = Math.max(0, center - (center - lower) * factor);
+			upper = Math.min(Math.max(1, trajectory.size()),
+					center + (upper - center) * factor);
+			if (upper - lower < 2) {
+				return;
+			}
+
+			follow = lower <= 0 && upper >= trajectory.size();
+			xAxis.setLowerBound(lower);
+			xAxis.setUpperBound(upper);
+			refresh();
+		});
+		balanceChart.setOnMouseClicked(event -> {
+			if (event.getClickCount() == 2) {
+				follow = true;
+				refresh();
+			}
+		});
+
+		/* Adjust chart colors. */
+		creditChart.lookup(".chart-plot-background")
+				.setStyle("-fx-background-color: transparent");
+		balanceChart.lookup(".chart-plot-background")
+				.setStyle("-fx-background-color: transparent");
+		balanceChart.lookup(".default-color0.chart-series-line")
+				.setStyle("-fx-stroke: blue");
+		balanceChart.lookup(".default-color1.chart-series-line")
+				.setStyle("-fx-stroke: green");
+		balanceChart.lookup(".default-color2.chart-series-line")
+				.setStyle("-fx-stroke: red");
+		balanceChart.lookup(".default-color3.chart-series-line")
+				.setStyle("-fx-stroke: black");
+
+		/* Flag for game screen visibility. */
+		CheckBox gameScreenVisibility = new CheckBox("Show Game Screen");
+		gameScreenVisibility.setSelected(true);
+		gameScreenVisibility.selectedProperty()
+				.addListener(new ChangeListener<Boolean>() {
+					public void changed(
+							ObservableValue<? extends Boolean> observable,
+							Boolean before, Boolean after) {
+						screenCanvas.setVisible(after);
+					}
+				});
+
+		/* Auto run setup. */
+		TextField autoRunText = new TextField();
+		autoRunText.setPrefWidth(80);
+		autoRunText.setMaxWidth(80);
+
+		/* Load credit setup. */
+		TextField loadCreditText = new TextField();
+		loadCreditText.setPrefWidth(80);
+		loadCreditText.setMaxWidth(80);
+
+		/* Limit value to number. */
+		autoRunText.setText("10");
+		autoRunText.textProperty().addListener((observable, before, after) -> {
+			if (after.matches("\\d*")) {
+				return;
+			}
+
+			loadCreditText.setText(before.replaceAll("[^\\d]", ""));
+		});
+
+		/* Load credit action. */
+		Button autoRunButton = new Button("Auto Run");
+		autoRunButton.setOnAction(value -> {
+			/* Number of auto run games. */
+			long runs = Long.valueOf(autoRunText.getText());
+
+			/* Play many games in background. */
+			for (Button button : actions) {
+				button.setDisable(true);
+			}
+			cancelButton.setDisable(false);
+			play(false, runs, progress);
+		});
+
+		/* Limit value to number. */
+		loadCreditText.setText("1000");
+		loadCreditText.textProperty()
+				.addListener((observable, before, after) -> {
+					if (after.matches("\\d*")) {
+						return;
+					}
+
+					loadCreditText.setText(before.replaceAll("[^\\d]", ""));
+				});
+
+		/* Load credit action. */
+		Button loadCreditButton = new Button("Load Credit");
+		loadCreditButton.setOnAction(value -> {
+			loadSeries.getData().add(new XYChart.Data<Number, Number>(
+					simulation.totalNumberOfGames + 1, 0));
+			loadSeries.getData().add(new XYChart.Data<Number, Number>(
+					simulation.totalNumberOfGames + 1, simulation.credit));
+
+			simulation.credit += Integer.valueOf(loadCreditText.getText());
+			simulation.balance.add(simulation.credit);
+			creditText.setText("" + simulation.credit);
+
+			loadSeries.getData().add(new XYChart.Data<Number, Number>(
+					simulation.totalNumberOfGames + 1, simulation.credit));
+			loadSeries.getData().add(new XYChart.Data<Number, Number>(
+					simulation.totalNumberOfGames + 1, 0));
+		});
+
+		/* Do bills loading simulation. */
+		Button simulateBillsButton = new Button("Simulate Bills");
+		simulateBillsButton.setOnAction(value -> {
+			creditText.setText("");
+			totalBetText.setText("");
+			singleWinText.setText("");
+			totalWinText.setText("");
+
+			/* Play the bills in background. */
+			for (Button button : actions) {
+				button.setDisable(true);
+			}
+			cancelButton.setDisable(false);
+			play(true, 0, progress);
+		});
+
+		/* Load credit action. */
+		Button clearCreditButton = new Button("Clear Credit");
+		clearCreditButton.setOnAction(value -> {
+			clearSeries.getData().add(new XYChart.Data<Number, Number>(
+					simulation.totalNumberOfGames - 1, 0));
+			clearSeries.getData().add(new XYChart.Data<Number, Number>(
+					simulation.totalNumberOfGames - 1, simulation.credit));
+
+			simulation.credit = 0;
+			simulation.balance.add(simulation.credit);
+			creditText.setText("" + simulation.credit);
+
+			clearSeries.getData().add(new XYChart.Data<Number, Number>(
+					simulation.totalNumberOfGames - 1, simulation.credit));
+			clearSeries.getData().add(new XYChart.Data<Number, Number>(
+					simulation.totalNumberOfGames - 1, 0));
+		});
+
+		Button clearChartButton = new Button("Clear Chart");
+		clearChartButton.setOnAction(value -> {
+			simulation.totalNumberOfGames = 0;
+			simulation.balance.clear();
+			trajectory.clear();
+			loadSeries.getData().clear();
+			clearSeries.getData().clear();
+
+			follow = true;
+			refresh();
+		});
+
+		actions.add(spinButton);
+		actions.add(autoRunButton);
+		actions.add(loadCreditButton);
+		actions.add(clearCreditButton);
+		actions.add(simulateBillsButton);
+		actions.add(clearChartButton);
+
+		/* Assemble visual controls layout. */
+		VBox vbox = new VBox(screenCanvas,
+				new BorderPane(null, null, new HBox(new Label("Credit:"),
+						creditText, new Label("Total Bet:"), totalBetText,
+						new Label("Single Win:"), singleWinText,
+						new Label("Total Win:"), totalWinText, spinButton),
+						null, null),
+				new BorderPane(null, null, new HBox(/* gameScreenVisibility, */
+						autoRunButton, autoRunText, loadCreditButton,
+						loadCreditText, clearCreditButton,
+						simulateBillsButton, cancelButton /* ,clearChartButton */),
+						null, null));
+
+		/* Show statistics scene. */
+		Stage statistics = new Stage();
+		statistics.setTitle("Game Statistics");
+		statistics.setScene(
+				new Scene(new StackPane(/* creditChart, */ balanceChart)));
+		statistics.setX(0);
+		statistics.setY(0);
+		statistics.show();
+
+		/* Cascade close of windows. */
+		stage.setOnCloseRequest(event -> {
+			statistics.close();
+		});
+
+		/* Show main scene. */
+		stage.setScene(new Scene(vbox));
+		stage.setTitle(
+				"Fruit Machine Simulator with Excel Interface version 1.0.0 Copyrights (C) 2017-2020 Velbazhd Software LLC");
+		stage.setX(200);
+		stage.setY(200);
+		stage.show();
+
+		/* Draw the screen when it changes and loop over winning lines. */
+		final double width = cellWidth;
+		final double height = cellHeight;
+		new AnimationTimer() {
+			/** The last drawn screen. */
+			private Screen drawn = null;
+
+			/** The last shown winning line or minus one. */
+			private int shown = -1;
+
+			/**
+			 * Select winning line which is shown in this second.
+			 *
+			 * @param now
+			 *            Time of the frame in nanoseconds.
+			 *
+			 * @return Index of the line or minus one if there is no winning
+			 *         line.
+			 */
+			private int line(long now) {
+				int counter = 0;
+				for (int l = 0; l < screen.winnerLines.length; l++) {
+					if (screen.winnerLines[l] > 0) {
+						counter++;
+					}
+				}
+				if (counter == 0) {
+					return -1;
+				}
+
+				int current = (int) (now / 1_000_000_000L % counter);
+				for (int l = 0, stop = -1; l < screen.winnerLines.length; l++) {
+					/* If it is not a winning line do nothing. */
+					if (screen.winnerLines[l] == 0) {
+						continue;
+					}
+
+					/* Increment winning lines counter. */
+					stop++;
+
+					if (current == stop) {
+						return l;
+					}
+				}
+
+				return -1;
+			}
+
+			/**
+			 * Draw cell border.
+			 *
+			 * @param gc
+			 *            Canvas graphics.
+			 * @param i
+			 *            Reel index.
+			 * @param j
+			 *            Row index.
+			 * @param color
+			 *            Border color.
+			 */
+			private void border(GraphicsContext gc, int i, int j,
+					Color color) {
+				gc.setStroke(color);
+				gc.setLineWidth(BORDER);
+				gc.strokeRect(i * width + BORDER / 2, j * height + BORDER / 2,
+						width - BORDER, height - BORDER);
+			}
+
+			@Override
+			public void handle(long now) {
+				if (screen == null) {
+					if (drawn == null) {
+						draw(-1);
+					}
+					return;
+				}
+
+				int line = line(now);
+				if (screen == drawn && line == shown) {
+					return;
+				}
+
+				/* Empty cells keep the previous symbols. */
+				if (screen != drawn) {
+					for (int i = 0; i < cells.length; i++) {
+						for (int j = 0; j < cells[i].length; j++) {
+							if (screen.view[i][j] != Simulation.empty) {
+								cells[i][j] = screen.view[i][j];
+							}
+						}
+					}
+				}
+
+				drawn = screen;
+				shown = line;
+				draw(line);
+
+				/* Show the win from the current line. */
+				if (line != -1) {
+					singleWinText.setText("" + screen.winnerLines[line]);
+				}
+			}
+
+			/**
+			 * Draw symbols, winning line and scatter wins.
+			 *
+			 * @param line
+			 *            Index of the winning line or minus one.
+			 */
+			private void draw(int line) {
+				GraphicsContext gc = screenCanvas.getGraphicsContext2D();
+				gc.setFill(Color.BLACK);
+				gc.fillRect(0, 0, screenCanvas.getWidth(),
+						screenCanvas.getHeight());
+
+				for (int i = 0; i < cells.length; i++) {
+					for (int j = 0; j < cells[i].length; j++) {
+						Image image = image(Simulation.symbols[cells[i][j]]);
+						if (image != null) {
+							gc.drawImage(image, i * width + BORDER,
+									j * height + BORDER);
+						}
+					}
+				}
+
+				if (line != -1) {
+					Line winning = Simulation.LINES.get(line);
+					Color color = Color.rgb(winning.color.getRed(),
+							winning.color.getGreen(), winning.color.getBlue());
+
+					for (int i = 0; i < winning.pattern.length; i++) {
+						for (int j = 0; j < winning.pattern[i].length; j++) {
+							if (winning.pattern[i][j] == true) {
+								border(gc, i, j, color);
+							}
+						}
+					}
+
+					/* Line through the centers of its cells. */
+					gc.setLineWidth(BORDER / 2);
+					gc.beginPath();
+					for (int i = 0; i < winning.positions.length; i++) {
+						double x = i * width + width / 2;
+						double y = winning.positions[i] * height + height / 2;
+						if (i == 0) {
+							gc.moveTo(x, y);
+						} else {
+							gc.lineTo(x, y);
+						}
+					}
+					gc.stroke();
+				}
+
+				/* Show scatter win. */
+				for (int i = 0; drawn != null && i < drawn.winners.length; i++) {
+					for (int j = 0; j < drawn.winners[i].length; j++) {
+						if (drawn.winners[i][j] == false) {
+							continue;
+						}
+
+						if ((Simulation.traits[drawn.view[i][j]]
+								& Symbol.SCATTER) == 0) {
+							continue;
+						}
+
+						border(gc, i, j, Color.WHITE);
+					}
+				}
+			}
+		}.start();
+	}
+}
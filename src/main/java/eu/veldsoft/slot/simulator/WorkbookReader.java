@@ -0,0 +1,424 @@
+package eu.veldsoft.slot.simulator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.poi.ooxml.util.SAXHelper;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFColor;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Event based reader of Excel workbooks. Only the requested sheets are parsed
+ * and only the cell values and styles are kept, so big workbooks are loaded
+ * without building the full document model.
+ *
+ * @author Todor Balabanov
+ */
+final class WorkbookReader {
+	/**
+	 * Single cell value.
+	 */
+	private static final class Cell {
+		/** Numeric cell flag. */
+		final boolean number;
+
+		/** Text of the cell or the number in text form. */
+		final String value;
+
+		/** Index of the cell style. */
+		final int style;
+
+		/**
+		 * Constructor with all fields.
+		 *
+		 * @param number
+		 *            Numeric cell flag.
+		 * @param value
+		 *            Cell value.
+		 * @param style
+		 *            Cell style index.
+		 */
+		Cell(boolean number, String value, int style) {
+			this.number = number;
+			this.value = value;
+			this.style = style;
+		}
+	}
+
+	/**
+	 * Values of a single sheet.
+	 */
+	static final class Sheet {
+		/** Rows of cells. Missing rows and cells are nulls. */
+		private final List<Cell[]> rows = new ArrayList<Cell[]>();
+
+		/**
+		 * Store cell value.
+		 *
+		 * @param r
+		 *            Row index.
+		 * @param c
+		 *            Column index.
+		 * @param cell
+		 *            Cell value.
+		 */
+		private void put(int r, int c, Cell cell) {
+			while (rows.size() <= r) {
+				rows.add(new Cell[0]);
+			}
+
+			Cell row[] = rows.get(r);
+			if (row.length <= c) {
+				row = Arrays.copyOf(row, c + 1);
+				rows.set(r, row);
+			}
+
+			row[c] = cell;
+		}
+
+		/**
+		 * Find cell.
+		 *
+		 * @param r
+		 *            Row index.
+		 * @param c
+		 *            Column index.
+		 *
+		 * @return Cell or null if there is no such cell.
+		 */
+		private Cell cell(int r, int c) {
+			if (r < 0 || r >= rows.size() || c < 0
+					|| c >= rows.get(r).length) {
+				return null;
+			}
+
+			return rows.get(r)[c];
+		}
+
+		/**
+		 * Check for text value.
+		 *
+		 * @param r
+		 *            Row index.
+		 * @param c
+		 *            Column index.
+		 *
+		 * @return True if the cell exists and it is not numeric.
+		 */
+		boolean isText(int r, int c) {
+			Cell cell = cell(r, c);
+			return cell != null && cell.number == false;
+		}
+
+		/**
+		 * Check for numeric value.
+		 *
+		 * @param r
+		 *            Row index.
+		 * @param c
+		 *            Column index.
+		 *
+		 * @return True if the cell exists and it is numeric.
+		 */
+		boolean isNumber(int r, int c) {
+			Cell cell = cell(r, c);
+			return cell != null && cell.number == true;
+		}
+
+		/**
+		 * Text value of a cell.
+		 *
+		 * @param r
+		 *            Row index.
+		 * @param c
+		 *            Column index.
+		 *
+		 * @return Cell text or empty string for missing cell.
+		 *
+		 * @throws IllegalStateException
+		 *             If the cell is numeric.
+		 */
+		String text(int r, int c) {
+			Cell cell = cell(r, c);
+
+			if (cell == null) {
+				return "";
+			}
+			if (cell.number == true) {
+				throw new IllegalStateException(
+						"Cell " + r + ":" + c + " is numeric!");
+			}
+
+			return cell.value;
+		}
+
+		/**
+		 * Numeric value of a cell.
+		 *
+		 * @param r
+		 *            Row index.
+		 * @param c
+		 *            Column index.
+		 *
+		 * @return Cell number.
+		 *
+		 * @throws IllegalStateException
+		 *             If the cell is missing or it is not numeric.
+		 */
+		double number(int r, int c) {
+			Cell cell = cell(r, c);
+
+			if (cell == null || cell.number == false) {
+				throw new IllegalStateException(
+						"Cell " + r + ":" + c + " is not numeric!");
+			}
+
+			return Double.parseDouble(cell.value);
+		}
+
+		/**
+		 * Style index of a cell.
+		 *
+		 * @param r
+		 *            Row index.
+		 * @param c
+		 *            Column index.
+		 *
+		 * @return Style index or zero (default style) for missing cell.
+		 */
+		int style(int r, int c) {
+			Cell cell = cell(r, c);
+			return cell == null ? 0 : cell.style;
+		}
+	}
+
+	/**
+	 * Parser of the sheet XML into sheet values.
+	 */
+	private static final class Handler extends DefaultHandler {
+		/** Shared strings of the workbook. */
+		private final ReadOnlySharedStringsTable strings;
+
+		/** Sheet to be filled. */
+		private final Sheet sheet;
+
+		/** Current row index. */
+		private int row = -1;
+
+		/** Current column index. */
+		private int column = -1;
+
+		/** Type of the current cell. */
+		private String type = null;
+
+		/** Style of the current cell. */
+		private int style = 0;
+
+		/** Value of the current cell. */
+		private final StringBuilder value = new StringBuilder();
+
+		/** Collect characters of value or inline text element flag. */
+		private boolean collect = false;
+
+		/**
+		 * Constructor with all fields.
+		 *
+		 * @param strings
+		 *            Shared strings of the workbook.
+		 * @param sheet
+		 *            Sheet to be filled.
+		 */
+		Handler(ReadOnlySharedStringsTable strings, Sheet sheet) {
+			this.strings = strings;
+			this.sheet = sheet;
+		}
+
+		@Override
+		public void startElement(String uri, String localName, String name,
+				Attributes attributes) {
+			if ("row".equals(localName) == true) {
+				String reference = attributes.getValue("r");
+				row = reference != null ? Integer.parseInt(reference) - 1
+						: row + 1;
+				column = -1;
+			} else if ("c".equals(localName) == true) {
+				String reference = attributes.getValue("r");
+				column = reference != null ? column(reference) : column + 1;
+				type = attributes.getValue("t");
+				String index = attributes.getValue("s");
+				style = index != null ? Integer.parseInt(index) : 0;
+				value.setLength(0);
+			} else if ("v".equals(localName) == true
+					|| ("t".equals(localName) == true
+							&& "inlineStr".equals(type) == true)) {
+				collect = true;
+			}
+		}
+
+		@Override
+		public void endElement(String uri, String localName, String name) {
+			if ("v".equals(localName) == true
+					|| "t".equals(localName) == true) {
+				collect = false;
+			} else if ("c".equals(localName) == true) {
+				String text = value.toString();
+
+				if ("s".equals(type) == true) {
+					sheet.put(row, column, new Cell(false,
+							strings.getItemAt(Integer.parseInt(text))
+									.getString(),
+							style));
+				} else if (type == null || "n".equals(type) == true) {
+					/* Cell without value is blank and it is text. */
+					sheet.put(row, column,
+							new Cell(text.isEmpty() == false, text, style));
+				} else {
+					sheet.put(row, column, new Cell(false, text, style));
+				}
+			}
+		}
+
+		@Override
+		public void characters(char[] buffer, int start, int length) {
+			if (collect == true) {
+				value.append(buffer, start, length);
+			}
+		}
+
+		/**
+		 * Column index from cell reference like AB12.
+		 *
+		 * @param reference
+		 *            Cell reference.
+		 *
+		 * @return Zero based column index.
+		 */
+		private static int column(String reference) {
+			int result = 0;
+			for (int i = 0; i < reference.length()
+					&& Character.isLetter(reference.charAt(i)) == true; i++) {
+				result = result * 26 + (reference.charAt(i) - 'A' + 1);
+			}
+
+			return result - 1;
+		}
+	}
+
+	/** Loaded sheets by name. */
+	private final Map<String, Sheet> sheets = new HashMap<String, Sheet>();
+
+	/** Raw data of the embedded pictures. */
+	private final List<byte[]> pictures = new ArrayList<byte[]>();
+
+	/** Cell styles of the workbook. */
+	private StylesTable styles = null;
+
+	/**
+	 * Read workbook.
+	 *
+	 * @param file
+	 *            Workbook file name.
+	 * @param names
+	 *            Names of the sheets to be loaded.
+	 *
+	 * @return Loaded sheets.
+	 *
+	 * @throws IOException
+	 *             If the file is not a valid workbook.
+	 */
+	static WorkbookReader read(String file, Set<String> names)
+			throws IOException {
+		WorkbookReader result = new WorkbookReader();
+
+		try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ)) {
+			XSSFReader reader = new XSSFReader(pkg);
+			ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(
+					pkg);
+			result.styles = reader.getStylesTable();
+
+			XSSFReader.SheetIterator iterator = (XSSFReader.SheetIterator) reader
+					.getSheetsData();
+			while (iterator.hasNext() == true) {
+				try (InputStream stream = iterator.next()) {
+					if (names.contains(iterator.getSheetName()) == false) {
+						continue;
+					}
+
+					Sheet sheet = new Sheet();
+					XMLReader parser = SAXHelper.newXMLReader();
+					parser.setContentHandler(new Handler(strings, sheet));
+					parser.parse(new InputSource(stream));
+
+					result.sheets.put(iterator.getSheetName(), sheet);
+				}
+			}
+
+			/* Pictures are in the same order as in the full workbook model. */
+			for (PackagePart part : pkg
+					.getPartsByName(Pattern.compile("/xl/media/.*?"))) {
+				try (InputStream stream = part.getInputStream()) {
+					result.pictures.add(IOUtils.toByteArray(stream));
+				}
+			}
+		} catch (OpenXML4JException | SAXException
+				| ParserConfigurationException | RuntimeException e) {
+			throw new IOException(e);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Loaded sheet.
+	 *
+	 * @param name
+	 *            Sheet name.
+	 *
+	 * @return Sheet or null if there is no such sheet.
+	 */
+	Sheet sheet(String name) {
+		return sheets.get(name);
+	}
+
+	/**
+	 * Embedded pictures.
+	 *
+	 * @return Raw data of the pictures.
+	 */
+	List<byte[]> pictures() {
+		return pictures;
+	}
+
+	/**
+	 * Background fill color of a cell style.
+	 *
+	 * @param style
+	 *            Style index.
+	 *
+	 * @return Color or null if there is no fill color.
+	 */
+	XSSFColor fill(int style) {
+		return styles.getStyleAt(style).getFillBackgroundXSSFColor();
+	}
+}
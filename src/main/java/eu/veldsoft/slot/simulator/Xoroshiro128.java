@@ -0,0 +1,125 @@
+package eu.veldsoft.slot.simulator;
+
+/**
+ * Xoroshiro128** generator (D. Blackman, S. Vigna, Scrambled Linear
+ * Pseudorandom Number Generators, 2018). Jump function moves the generator
+ * 2^64 steps ahead, which gives non-overlapping streams for the workers.
+ * 
+ * @author Todor Balabanov
+ */
+final class Xoroshiro128 extends StreamGenerator {
+	/** Serial version for the checkpoints. */
+	private static final long serialVersionUID = 1L;
+
+	/** Jump polynomial for 2^64 steps. */
+	private static final long JUMP[] = {0xDF900294D8F554A5L,
+			0x170865DF4B3201FCL};
+
+	/** First part of the state. */
+	private long s0;
+
+	/** Second part of the state. */
+	private long s1;
+
+	/**
+	 * Constructor with a seed.
+	 * 
+	 * @param seed
+	 *            Seed expanded to the full state by SplitMix64.
+	 */
+	Xoroshiro128(long seed) {
+		setSeed(seed);
+	}
+
+	/**
+	 * Copy constructor.
+	 * 
+	 * @param original
+	 *            Generator to copy.
+	 */
+	private Xoroshiro128(Xoroshiro128 original) {
+		s0 = original.s0;
+		s1 = original.s1;
+	}
+
+	/**
+	 * Move the generator 2^64 steps ahead.
+	 */
+	void jump() {
+		long t0 = 0L;
+		long t1 = 0L;
+
+		for (long polynomial : JUMP) {
+			for (int b = 0; b < 64; b++) {
+				if ((polynomial & (1L << b)) != 0) {
+					t0 ^= s0;
+					t1 ^= s1;
+				}
+
+				nextLong();
+			}
+		}
+
+		s0 = t0;
+		s1 = t1;
+	}
+
+	/**
+	 * Create a generator for the next stream and move this one 2^64 steps
+	 * ahead.
+	 * 
+	 * @return Generator starting at the current position.
+	 */
+	Xoroshiro128 split() {
+		Xoroshiro128 result = new Xoroshiro128(this);
+		jump();
+		return result;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long nextLong() {
+		long result = Long.rotateLeft(s0 * 5, 7) * 9;
+
+		s1 ^= s0;
+		s0 = Long.rotateLeft(s0, 24) ^ s1 ^ (s1 << 16);
+		s1 = Long.rotateLeft(s1, 37);
+
+		return result;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int nextInt() {
+		return (int) (nextLong() >>> 32);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double nextDouble() {
+		return (nextLong() >>> 11) * 0x1.0p-53;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setSeed(long seed) {
+		SplitMix64 expander = new SplitMix64(seed);
+		s0 = expander.nextLong();
+		s1 = expander.nextLong();
+
+		/* All zeros state is not allowed. */
+		if (s0 == 0L && s1 == 0L) {
+			s1 = 1L;
+		}
+
+		clear();
+	}
+}
@@ -0,0 +1,164 @@
+package eu.veldsoft.slot.simulator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Exact calculation of the base game is compared with brute force of all
+ * reels stops on a small synthetic game.
+ *
+ * @author Todor Balabanov
+ */
+public class ExactCalculatorTest {
+	/** Number of reels. */
+	private static final int REELS = 5;
+
+	/** Number of rows. */
+	private static final int ROWS = 3;
+
+	/** Number of symbols, the last two are wild and scatter. */
+	private static final int SYMBOLS = 6;
+
+	/** Number of lines. */
+	private static final int LINES = 5;
+
+	/** Length of the reels. */
+	private static final int LENGTH = 6;
+
+	/**
+	 * Setup synthetic game with regular symbols, wild with line multiplier
+	 * and paying scatter without free spins.
+	 */
+	@Before
+	public void setUp() {
+		Random random = new Random(7L);
+
+		Simulation.SYMBOLS.clear();
+		Simulation.PAYTABLE.clear();
+		Simulation.LINES.clear();
+		Simulation.WILDS.clear();
+		Simulation.EXTENDS.clear();
+		Simulation.SCATTERS.clear();
+		Simulation.FREES.clear();
+		Simulation.BONUSES.clear();
+
+		Simulation.numberOfReels = REELS;
+		Simulation.numberOfRows = ROWS;
+		Simulation.scatterMultiplier = 1;
+		Simulation.wildInLineMultiplier = 2;
+		Simulation.freeGamesMultiplier = 1;
+
+		for (int s = 0; s < SYMBOLS; s++) {
+			Symbol symbol = new Symbol();
+			symbol.index = s;
+			symbol.name = "S" + s;
+			symbol.type = Symbol.Type.REGULAR;
+			symbol.pays = new int[REELS + 1];
+
+			if (s == SYMBOLS - 2) {
+				symbol.type = Symbol.Type.WILD;
+				Simulation.WILDS.add(symbol);
+				for (int c = 3; c <= REELS; c++) {
+					symbol.pays[c] = 10 * (c - 2);
+				}
+			} else if (s == SYMBOLS - 1) {
+				symbol.type = Symbol.Type.SCATTER;
+				Simulation.SCATTERS.add(symbol);
+				for (int c = 2; c <= REELS; c++) {
+					symbol.pays[c] = c;
+				}
+			} else {
+				for (int c = 3; c <= REELS; c++) {
+					symbol.pays[c] = (s + 1) * (c - 2);
+				}
+			}
+
+			Simulation.SYMBOLS.add(symbol);
+			Simulation.PAYTABLE.add(symbol);
+		}
+
+		for (int l = 0; l < LINES; l++) {
+			Line line = new Line();
+			line.positions = new int[REELS];
+			line.pattern = new boolean[REELS][ROWS];
+
+			for (int i = 0; i < REELS; i++) {
+				line.positions[i] = l < ROWS ? l : random.nextInt(ROWS);
+				line.pattern[i][line.positions[i]] = true;
+			}
+
+			Simulation.LINES.add(line);
+		}
+
+		Simulation.baseStrips = new String[REELS][LENGTH];
+		Simulation.freeStrips = new String[REELS][LENGTH];
+		for (int i = 0; i < REELS; i++) {
+			for (int j = 0; j < LENGTH; j++) {
+				Simulation.baseStrips[i][j] = "S" + random.nextInt(SYMBOLS);
+				Simulation.freeStrips[i][j] = Simulation.baseStrips[i][j];
+			}
+		}
+
+		Simulation.verboseOutput = false;
+		Simulation.freeOff = false;
+		Simulation.wildsOff = false;
+		Simulation.burningHotWilds = false;
+		Simulation.luckyAndWildWilds = false;
+		Simulation.luckyLadysCharm = false;
+		Simulation.ageOfTroy = false;
+		Simulation.twentyHotBlast = false;
+		Simulation.extraStars = false;
+		Simulation.bruteForce = false;
+
+		Simulation.initialize();
+	}
+
+	/**
+	 * Brute force mode should not stay on for the other tests.
+	 */
+	@After
+	public void tearDown() {
+		Simulation.bruteForce = false;
+	}
+
+	/**
+	 * Money, hit rate and symbols statistics of the exact calculation should
+	 * be the same as the sum over all reels stops.
+	 */
+	@Test
+	public void calculateEqualsBruteForce() {
+		Simulation exact = ExactCalculator.calculate(Simulation.baseCodes,
+				true);
+
+		Simulation.bruteForce = true;
+		Simulation enumerated = new Simulation();
+		long combinations = Simulation.baseGameNumberOfCombinations();
+		for (long c = 0L; c < combinations; c++) {
+			enumerated.singleBaseGame();
+		}
+
+		/* The game should have both wins and losses. */
+		assertTrue(exact.baseMoney > 0);
+		assertTrue(exact.baseGameHitRate > 0);
+		assertTrue(exact.baseGameHitRate < exact.totalNumberOfGames);
+
+		assertEquals(enumerated.totalNumberOfGames, exact.totalNumberOfGames);
+		assertEquals(enumerated.lostMoney, exact.lostMoney);
+		assertEquals(enumerated.baseMoney, exact.baseMoney);
+		assertEquals(enumerated.wonMoney, exact.wonMoney);
+		assertEquals(enumerated.baseGameHitRate, exact.baseGameHitRate);
+		for (int i = 0; i < exact.baseSymbolMoney.length; i++) {
+			assertArrayEquals(enumerated.baseSymbolMoney[i],
+					exact.baseSymbolMoney[i]);
+			assertArrayEquals(enumerated.baseGameSymbolsHitRate[i],
+					exact.baseGameSymbolsHitRate[i]);
+		}
+	}
+}
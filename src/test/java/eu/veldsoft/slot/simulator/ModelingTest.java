@@ -0,0 +1,114 @@
+package eu.veldsoft.slot.simulator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Arrangement of the reels groups should keep the limit of the neighboring
+ * repeats or report that the limit can not be kept.
+ *
+ * @author Todor Balabanov
+ */
+public class ModelingTest {
+	/** Number of random reels to arrange. */
+	private static final int REELS = 500;
+
+	/**
+	 * Count neighboring groups with the same symbol. The first group is a
+	 * neighbor of the last one.
+	 *
+	 * @param groups
+	 *            Arranged groups.
+	 *
+	 * @return Number of repeats.
+	 */
+	private static int repeats(List<List<String>> groups) {
+		int counter = 0;
+
+		for (int i = 0; i < groups.size(); i++) {
+			if (groups.get(i).get(0).equals(
+					groups.get((i + 1) % groups.size()).get(0)) == true) {
+				counter++;
+			}
+		}
+
+		return counter;
+	}
+
+	/**
+	 * Least possible number of repeats. Groups of the most frequent symbol
+	 * are separated by all other groups.
+	 *
+	 * @param groups
+	 *            Groups of symbols.
+	 *
+	 * @return Number of repeats which can not be avoided.
+	 */
+	private static int minimum(List<List<String>> groups) {
+		Map<String, Integer> counts = new HashMap<String, Integer>();
+		for (List<String> group : groups) {
+			counts.merge(group.get(0), 1, Integer::sum);
+		}
+
+		return Math.max(0,
+				2 * Collections.max(counts.values()) - groups.size());
+	}
+
+	/**
+	 * Random reels, some of them impossible to arrange, are arranged with a
+	 * random limit of repeats.
+	 */
+	@Test
+	public void arrangeKeepsRepeatsOrThrows() {
+		Random random = new Random(11L);
+		Comparator<List<String>> order = (a, b) -> a.toString()
+				.compareTo(b.toString());
+
+		for (int r = 0; r < REELS; r++) {
+			int size = 2 + random.nextInt(60);
+			int symbols = 1 + random.nextInt(8);
+			int stack = 1 + random.nextInt(3);
+			int limit = random.nextInt(4);
+
+			List<List<String>> groups = new ArrayList<List<String>>();
+			for (int g = 0; g < size; g++) {
+				/* Some symbols are much more frequent than the others. */
+				String symbol = "S" + Math.min(random.nextInt(symbols),
+						random.nextInt(symbols));
+
+				List<String> group = new ArrayList<String>();
+				for (int s = 0; s < stack; s++) {
+					group.add(symbol);
+				}
+				groups.add(group);
+			}
+
+			List<List<String>> arranged;
+			try {
+				arranged = Modeling.arrange(groups, limit, r);
+			} catch (IllegalArgumentException e) {
+				assertTrue(minimum(groups) > limit);
+				continue;
+			}
+
+			assertTrue(repeats(arranged) <= limit);
+
+			/* Arrangement only changes the order of the groups. */
+			List<List<String>> expected = new ArrayList<List<String>>(groups);
+			List<List<String>> actual = new ArrayList<List<String>>(arranged);
+			expected.sort(order);
+			actual.sort(order);
+			assertEquals(expected, actual);
+		}
+	}
+}